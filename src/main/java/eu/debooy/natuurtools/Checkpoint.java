@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.DoosUtils;
+import eu.debooy.doosutils.access.JsonBestand;
+import eu.debooy.doosutils.exception.BestandException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+
+/**
+ * Houdt bij welke deelbomen, direct onder de 'root', volledig gecommit zijn
+ * en met welke totalen. Na elke deelboom wordt het bestand herschreven.
+ *
+ * @author Marco de Booij
+ */
+public class Checkpoint {
+  protected static final  String  KEY_KLAAR   = "klaar";
+  protected static final  String  KEY_RANGEN  = "rangen";
+  protected static final  String  KEY_TALEN   = "talen";
+  protected static final  String  TMP         = ".tmp";
+
+  private final String                bestand;
+  private final String                charset;
+  private final Set<String>           klaar   = new HashSet<>();
+  private final Map<String, Totalen>  namen   = new HashMap<>();
+  private final Map<String, Totalen>  totalen = new HashMap<>();
+
+  private           String  latijnsenaam  = null;
+  private volatile  boolean mislukt       = false;
+
+  public Checkpoint(String bestand, String charset) {
+    this.bestand  = bestand;
+    this.charset  = charset;
+  }
+
+  public synchronized void addKlaar(String deelboom,
+                                    Map<String, Totalen> rangen,
+                                    Map<String, Totalen> talen) {
+    klaar.add(deelboom);
+    voegToe(totalen, rangen);
+    voegToe(namen, talen);
+    schrijf();
+  }
+
+  public String getLatijnsenaam() {
+    return latijnsenaam;
+  }
+
+  public Map<String, Totalen> getNamen() {
+    return namen;
+  }
+
+  public Map<String, Totalen> getTotalen() {
+    return totalen;
+  }
+
+  public synchronized boolean isKlaar(String deelboom) {
+    return klaar.contains(deelboom);
+  }
+
+  public void lees() throws BestandException {
+    if (!Files.exists(Paths.get(bestand))) {
+      return;
+    }
+
+    try (var jsonBestand  =
+          new JsonBestand.Builder()
+                         .setBestand(bestand)
+                         .setCharset(charset)
+                         .build()) {
+      var latijn  = jsonBestand.get(NatuurTools.KEY_LATIJN);
+      latijnsenaam  = null == latijn ? null : latijn.toString();
+      var lijst   = (JSONArray) jsonBestand.get(KEY_KLAAR);
+      if (null != lijst) {
+        lijst.forEach(deelboom -> klaar.add(deelboom.toString()));
+      }
+      leesTotalen((JSONObject) jsonBestand.get(KEY_RANGEN), totalen);
+      leesTotalen((JSONObject) jsonBestand.get(KEY_TALEN), namen);
+    }
+  }
+
+  private static void leesTotalen(JSONObject json,
+                                  Map<String, Totalen> lijst) {
+    if (null == json) {
+      return;
+    }
+
+    json.forEach((sleutel, waarden) -> {
+      var tellers = (JSONArray) waarden;
+      var totaal  = new Totalen(sleutel.toString());
+      totaal.voegToe(((Number) tellers.get(0)).intValue(),
+                     ((Number) tellers.get(1)).intValue(),
+                     ((Number) tellers.get(2)).intValue());
+      lijst.put(sleutel.toString(), totaal);
+    });
+  }
+
+  public void setLatijnsenaam(String latijnsenaam) {
+    this.latijnsenaam = latijnsenaam;
+  }
+
+  public void setMislukt() {
+    mislukt = true;
+  }
+
+  /**
+   * Na een volledige verwerking is het checkpoint niet meer nodig.
+   */
+  public void sluit() {
+    if (mislukt) {
+      return;
+    }
+
+    try {
+      Files.deleteIfExists(Paths.get(bestand));
+    } catch (IOException e) {
+      DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+    }
+  }
+
+  private void schrijf() {
+    var json  = new JSONObject();
+    json.put(NatuurTools.KEY_LATIJN, latijnsenaam);
+    var lijst = new JSONArray();
+    lijst.addAll(klaar);
+    json.put(KEY_KLAAR, lijst);
+    json.put(KEY_RANGEN, schrijfTotalen(totalen));
+    json.put(KEY_TALEN, schrijfTotalen(namen));
+
+    // Een onderbreking tijdens het schrijven laat het vorige checkpoint heel.
+    NatuurTools.writeJson(bestand + TMP, json, charset);
+    try {
+      Files.move(Paths.get(bestand + TMP), Paths.get(bestand),
+                 StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+    }
+  }
+
+  private static JSONObject schrijfTotalen(Map<String, Totalen> lijst) {
+    var json  = new JSONObject();
+    lijst.forEach((sleutel, totaal) -> {
+      var tellers = new JSONArray();
+      tellers.add(totaal.getAantal());
+      tellers.add(totaal.getUpdate());
+      tellers.add(totaal.getNieuw());
+      json.put(sleutel, tellers);
+    });
+
+    return json;
+  }
+
+  private static void voegToe(Map<String, Totalen> naar,
+                              Map<String, Totalen> van) {
+    van.forEach((sleutel, totaal) ->
+        naar.computeIfAbsent(sleutel, k -> new Totalen(k)).voegToe(totaal));
+  }
+}
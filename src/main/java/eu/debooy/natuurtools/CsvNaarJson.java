@@ -36,34 +36,44 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
-import javax.persistence.EntityManager;
+import java.util.stream.Collectors;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
 
 /**
  * @author Marco de Booij
  */
 public class CsvNaarJson extends Batchjob {
+  protected static final  String  ERR_SNAPSHOT  = "error.snapshot";
+  protected static final  String  ERR_VERPLICHT = "error.verplicht";
+
   private static final  ResourceBundle  resourceBundle  =
       ResourceBundle.getBundle("ApplicatieResources", Locale.getDefault());
 
-  private static final  Map<String, JSONObject> jsonRang    = new HashMap<>();
-  private static final  Map<String, JSONArray>  jsonRangen  = new HashMap<>();
-  private static final  JSONParser              parser      = new JSONParser();
+  private static final  Map<String, Integer>    niveaus     = new HashMap<>();
   private static final  List<String>            rangen      = new ArrayList<>();
   private static final  Map<String, Integer>    totalen     = new HashMap<>();
 
+  // Per niveau van de rang het open taxon en zijn afgewerkte broers. Een
+  // afgewerkt taxon wordt, zonder kopie, naar zijn parent verplaatst.
+  private static  JSONObject[]  jsonRang    = new JSONObject[0];
+  private static  JSONArray[]   jsonRangen  = new JSONArray[0];
+
   private static  Integer lijnen      = 0;
   private static  String  taal        = "";
   private static  String  vorigeRang  = "";
 
   protected CsvNaarJson() {}
 
-  private static void controleerHierarchie(String rang, String latijnsenaam)
-      throws ParseException {
+  private static void afwerken(int niveau) {
+    if (!jsonRang[niveau].isEmpty()) {
+      jsonRangen[niveau].add(jsonRang[niveau]);
+      jsonRang[niveau]  = new JSONObject();
+    }
+  }
+
+  private static void controleerHierarchie(String rang, String latijnsenaam) {
     // Genereer het geslacht als deze niet in het bestand staat.
     if (rang.equals(NatuurConstants.RANG_SOORT)) {
       genereerRang(NatuurConstants.RANG_GESLACHT, latijnsenaam.split(" ")[0]);
@@ -76,7 +86,7 @@ public class CsvNaarJson extends Batchjob {
     }
 
     if (!rang.equals(vorigeRang)) {
-      if (rangen.indexOf(vorigeRang) > rangen.indexOf(rang)) {
+      if (getNiveau(vorigeRang) > getNiveau(rang)) {
         samenvoegen(rang);
       }
       vorigeRang  = rang;
@@ -95,39 +105,25 @@ public class CsvNaarJson extends Batchjob {
       return;
     }
 
-    try (var dbConn =
-        new DbConnection.Builder()
-              .setDbUser(paramBundle.getString(NatuurTools.PAR_DBUSER))
-              .setDbUrl(paramBundle.getString(NatuurTools.PAR_DBURL))
-              .setWachtwoord(paramBundle.getString(NatuurTools.PAR_WACHTWOORD))
-              .setPersistenceUnitName(NatuurTools.EM_UNITNAME)
-              .build()) {
-      var em  = dbConn.getEntityManager();
+    if (!paramBundle.containsArgument(NatuurTools.PAR_SNAPSHOT)
+        && !paramBundle.containsArgument(NatuurTools.PAR_DBURL)) {
+      DoosUtils.foutNaarScherm(
+          MessageFormat.format(resourceBundle.getString(ERR_VERPLICHT),
+                               NatuurTools.PAR_DBURL));
+      return;
+    }
 
+    try {
       taal  = paramBundle.getString(Batchjob.PAR_TAAL);
-      if (taal.length() == 2) {
-        taal  = ((TaalDto)  em.createNamedQuery(TaalDto.QRY_TAAL_ISO6391)
-                              .setParameter(TaalDto.PAR_ISO6391,
-                                    paramBundle.getString(Batchjob.PAR_TAAL))
-                              .getSingleResult()).getIso6392t();
-
-      }
 
       var taxoninfo = paramBundle.getString(NatuurTools.PAR_TAXAROOT)
                                  .split(",");
-      getRangen(em);
-
-      var         namen       = new JSONObject();
-      TaxonDto    parent      = NatuurTools.getTaxon(taxoninfo[1], em);
-      String      root        = parent.getRang();
-      vorigeRang  = root;
-
-      jsonRang.get(root).put(NatuurTools.KEY_LATIJN, parent.getLatijnsenaam());
-      jsonRang.get(root).put(NatuurTools.KEY_RANG, root);
-      jsonRang.get(root).put(NatuurTools.KEY_SEQ, parent.getVolgnummer());
-      parent.getTaxonnamen().forEach(naam -> namen.put(naam.getTaal(),
-                                                       naam.getNaam()));
-      jsonRang.get(root).put(NatuurTools.KEY_NAMEN, namen);
+      String  root;
+      if (paramBundle.containsArgument(NatuurTools.PAR_SNAPSHOT)) {
+        root  = uitSnapshot(taxoninfo[1]);
+      } else {
+        root  = uitDatabase(taxoninfo[1]);
+      }
 
       verwerkCsv();
 
@@ -148,11 +144,10 @@ public class CsvNaarJson extends Batchjob {
     klaar();
   }
 
-  private static void genereerRang(String rang, String latijnsenaam)
-      throws ParseException {
-    if (!jsonRang.get(rang).isEmpty()) {
-      if (!jsonRang.get(rang).get(NatuurTools.KEY_LATIJN)
-                  .equals(latijnsenaam)) {
+  private static void genereerRang(String rang, String latijnsenaam) {
+    var json  = jsonRang[getNiveau(rang)];
+    if (!json.isEmpty()) {
+      if (!json.get(NatuurTools.KEY_LATIJN).equals(latijnsenaam)) {
         verwerkTaxon(rang, latijnsenaam, "");
       }
     } else {
@@ -160,16 +155,25 @@ public class CsvNaarJson extends Batchjob {
     }
   }
 
-  private static void getRangen(EntityManager em) {
-    List<RangDto> ranglijst = em.createQuery(NatuurTools.QRY_RANG)
-                                .getResultList();
+  private static int getNiveau(String rang) {
+    var niveau  = niveaus.get(rang);
+
+    return null == niveau ? -1 : niveau;
+  }
 
+  private static void getRangen(List<String> ranglijst) {
     ranglijst.forEach(rang -> {
-      jsonRang.put((rang.getRang()), new JSONObject());
-      jsonRangen.put((rang.getRang()), new JSONArray());
-      rangen.add(rang.getRang());
-      totalen.put(rang.getRang(), 0);
+      niveaus.put(rang, rangen.size());
+      rangen.add(rang);
+      totalen.put(rang, 0);
     });
+
+    jsonRang    = new JSONObject[rangen.size()];
+    jsonRangen  = new JSONArray[rangen.size()];
+    for (var i = 0; i < rangen.size(); i++) {
+      jsonRang[i]   = new JSONObject();
+      jsonRangen[i] = new JSONArray();
+    }
   }
 
   private static Integer getVolgnummer(String rang) {
@@ -180,28 +184,18 @@ public class CsvNaarJson extends Batchjob {
     return volgnummer;
   }
 
-  protected static String naarRang(String rang, String laatste)
-      throws ParseException {
-    if (!jsonRangen.get(laatste).isEmpty()) {
-      jsonRang.get(rang).put(NatuurTools.KEY_SUBRANGEN,
-                             parser.parse(jsonRangen.get(laatste)
-                                                    .toString()));
-      jsonRangen.get(laatste).clear();
-    }
-    jsonRangen.get(rang).add(parser.parse(jsonRang.get(rang)
-                                                  .toString()));
-    jsonRang.get(rang).clear();
-    return rang;
+  protected static int naarRang(int niveau, int laatste) {
+    verplaatsSubrangen(niveau, laatste);
+    afwerken(niveau);
+
+    return niveau;
   }
 
-  protected static String naarRangen(String rang, String laatste)
-      throws ParseException {
-    for (Object subrang : jsonRangen.get(laatste)) {
-      jsonRangen.get(rang).add(parser.parse(subrang.toString()));
-    }
-    jsonRangen.get(laatste).clear();
+  protected static int naarRangen(int niveau, int laatste) {
+    jsonRangen[niveau].addAll(jsonRangen[laatste]);
+    jsonRangen[laatste].clear();
 
-    return rang;
+    return niveau;
   }
 
   protected static void printMessages(List<Message> fouten) {
@@ -209,46 +203,38 @@ public class CsvNaarJson extends Batchjob {
       DoosUtils.foutNaarScherm(getMelding(LBL_FOUT, fout.toString())));
   }
 
-  private static void samenvoegen(String root) throws ParseException {
-    Integer iRoot   = rangen.indexOf(root);
-    String  laatste = rangen.get(rangen.size()-1);
+  private static void samenvoegen(String root) {
+    var iRoot   = getNiveau(root);
+    var laatste = rangen.size()-1;
 
     // Laagste rang kan geen subrangen hebben.
-    if (!jsonRang.get(laatste).isEmpty()) {
-      jsonRangen.get(laatste).add(parser.parse(jsonRang.get(laatste)
-                                                       .toString()));
-      jsonRang.get(laatste).clear();
-    }
+    afwerken(laatste);
 
     for (int i = rangen.size()-2; i > iRoot; i--) {
-      String  rang    = rangen.get(i);
-      if (!jsonRang.get(rang).isEmpty()) {
-        laatste = naarRang(rang, laatste);
+      if (!jsonRang[i].isEmpty()) {
+        laatste = naarRang(i, laatste);
       } else {
-        if (!jsonRangen.get(rang).isEmpty()
-            && !jsonRangen.get(laatste).isEmpty()) {
-          laatste = naarRangen(rang, laatste);
+        if (!jsonRangen[i].isEmpty()
+            && !jsonRangen[laatste].isEmpty()) {
+          laatste = naarRangen(i, laatste);
         }
       }
     }
 
-    if (!jsonRang.get(root).isEmpty()) {
-      jsonRang.get(root).put(NatuurTools.KEY_SUBRANGEN,
-                             parser.parse(jsonRangen.get(laatste).toString()));
+    if (!jsonRang[iRoot].isEmpty()) {
+      jsonRang[iRoot].put(NatuurTools.KEY_SUBRANGEN, jsonRangen[laatste]);
+      jsonRangen[laatste] = new JSONArray();
     } else {
-      for (Object subrang : jsonRangen.get(laatste)) {
-        jsonRangen.get(root).add(parser.parse(subrang.toString()));
-      }
+      naarRangen(iRoot, laatste);
     }
-    jsonRangen.get(laatste).clear();
 
     NatuurTools.writeJson(paramBundle.getBestand(PAR_JSONBESTAND,
                                                  BestandConstants.EXT_JSON),
-                          jsonRang.get(root),
+                          jsonRang[iRoot],
                           paramBundle.getString(PAR_CHARSETUIT));
   }
 
-  private static void verwerkCsv() throws ParseException {
+  private static void verwerkCsv() {
     try (var csvBestand =
           new CsvBestand.Builder()
                         .setBestand(
@@ -266,33 +252,115 @@ public class CsvNaarJson extends Batchjob {
 
         verwerkTaxon(rang, latijnsenaam, naam);
       }
-    } catch (BestandException | ParseException e) {
+    } catch (BestandException e) {
       DoosUtils.foutNaarScherm(e.getLocalizedMessage());
     }
   }
 
+  private static String uitDatabase(String latijnsenaam) throws Exception {
+    try (var dbConn =
+        new DbConnection.Builder()
+              .setDbUser(paramBundle.getString(NatuurTools.PAR_DBUSER))
+              .setDbUrl(paramBundle.getString(NatuurTools.PAR_DBURL))
+              .setWachtwoord(paramBundle.getString(NatuurTools.PAR_WACHTWOORD))
+              .setPersistenceUnitName(NatuurTools.EM_UNITNAME)
+              .build()) {
+      var em  = dbConn.getEntityManager();
+
+      if (taal.length() == 2) {
+        taal  = ((TaalDto)  em.createNamedQuery(TaalDto.QRY_TAAL_ISO6391)
+                              .setParameter(TaalDto.PAR_ISO6391,
+                                    paramBundle.getString(Batchjob.PAR_TAAL))
+                              .getSingleResult()).getIso6392t();
+
+      }
+
+      List<RangDto> ranglijst = em.createQuery(NatuurTools.QRY_RANG)
+                                  .getResultList();
+      getRangen(ranglijst.stream()
+                         .map(RangDto::getRang)
+                         .collect(Collectors.toList()));
+
+      var       namen   = new JSONObject();
+      TaxonDto  parent  = NatuurTools.getTaxon(latijnsenaam, em);
+      var       taxon   = new JSONObject();
+      taxon.put(NatuurTools.KEY_LATIJN, parent.getLatijnsenaam());
+      taxon.put(NatuurTools.KEY_RANG, parent.getRang());
+      taxon.put(NatuurTools.KEY_SEQ, parent.getVolgnummer());
+      parent.getTaxonnamen().forEach(naam -> namen.put(naam.getTaal(),
+                                                       naam.getNaam()));
+      taxon.put(NatuurTools.KEY_NAMEN, namen);
+
+      return zetRoot(taxon);
+    }
+  }
+
+  private static String uitSnapshot(String latijnsenaam)
+      throws BestandException {
+    var snapshot  =
+        Snapshotbestand.lees(paramBundle.getBestand(NatuurTools.PAR_SNAPSHOT),
+                             paramBundle.getString(PAR_CHARSETIN));
+
+    if (taal.length() == 2
+        && null != snapshot.getIso6392t(taal)) {
+      taal  = snapshot.getIso6392t(taal);
+    }
+
+    getRangen(snapshot.getRangen());
+
+    var taxon     = snapshot.getTaxon(latijnsenaam);
+    if (null == taxon) {
+      throw new BestandException(
+          MessageFormat.format(resourceBundle.getString(ERR_SNAPSHOT),
+                               latijnsenaam,
+                               paramBundle.getBestand(
+                                   NatuurTools.PAR_SNAPSHOT)));
+    }
+
+    return zetRoot(taxon);
+  }
+
+  private static void verplaatsSubrangen(int naar, int van) {
+    if (!jsonRangen[van].isEmpty()) {
+      jsonRang[naar].put(NatuurTools.KEY_SUBRANGEN, jsonRangen[van]);
+      jsonRangen[van] = new JSONArray();
+    }
+  }
+
   private static void verwerkTaxon(String rang, String latijnsenaam,
-                                   String naam)
-      throws ParseException {
+                                   String naam) {
     var     namen       = new JSONObject();
     Integer volgnummer  = getVolgnummer(rang);
 
     controleerHierarchie(rang, latijnsenaam);
 
-    if (!jsonRang.get(rang).isEmpty()) {
-      jsonRangen.get(rang).add(parser.parse(jsonRang.get(rang).toString()));
-      jsonRang.get(rang).clear();
-    }
+    var niveau  = getNiveau(rang);
+    afwerken(niveau);
 
     if (DoosUtils.isNotBlankOrNull(naam)) {
       namen.put(taal, naam);
     }
-    jsonRang.get(rang).put(NatuurTools.KEY_LATIJN, latijnsenaam);
+    var json    = jsonRang[niveau];
+    json.put(NatuurTools.KEY_LATIJN, latijnsenaam);
     if (!namen.isEmpty()) {
-      jsonRang.get(rang).put(NatuurTools.KEY_NAMEN,
-                             parser.parse(namen.toString()));
+      json.put(NatuurTools.KEY_NAMEN, namen);
     }
-    jsonRang.get(rang).put(NatuurTools.KEY_RANG, rang);
-    jsonRang.get(rang).put(NatuurTools.KEY_SEQ, volgnummer);
+    json.put(NatuurTools.KEY_RANG, rang);
+    json.put(NatuurTools.KEY_SEQ, volgnummer);
+  }
+
+  private static String zetRoot(JSONObject taxon) {
+    var rang    = (String) taxon.get(NatuurTools.KEY_RANG);
+    var namen   = taxon.get(NatuurTools.KEY_NAMEN);
+    vorigeRang  = rang;
+
+    var json    = jsonRang[getNiveau(rang)];
+    json.put(NatuurTools.KEY_LATIJN, taxon.get(NatuurTools.KEY_LATIJN));
+    json.put(NatuurTools.KEY_RANG, rang);
+    json.put(NatuurTools.KEY_SEQ, taxon.get(NatuurTools.KEY_SEQ));
+    json.put(NatuurTools.KEY_NAMEN, null == namen ? new JSONObject() : namen);
+
+    return rang;
   }
+
 }
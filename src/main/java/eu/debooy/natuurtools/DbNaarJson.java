@@ -21,34 +21,49 @@ import eu.debooy.doosutils.DoosBanner;
 import eu.debooy.doosutils.DoosUtils;
 import eu.debooy.doosutils.ParameterBundle;
 import eu.debooy.doosutils.access.BestandConstants;
+import eu.debooy.doosutils.exception.BestandException;
 import eu.debooy.doosutils.percistence.DbConnection;
 import eu.debooy.natuur.domain.RangDto;
 import eu.debooy.natuur.domain.TaxonDto;
 import static eu.debooy.natuurtools.NatuurTools.QRY_RANG;
+import java.io.StringWriter;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
 
 /**
  * @author Marco de Booij
  */
 public class DbNaarJson extends Batchjob {
-  private static final  JSONParser            parser  = new JSONParser();
+  protected static final  String  SCHEIDING = ";";
+
+  private static final  ResourceBundle  resourceBundle  =
+      ResourceBundle.getBundle("ApplicatieResources", Locale.getDefault());
+
   private static final  List<String>          rangen  = new ArrayList<>();
-  private static final  Map<String, Integer>  totalen = new HashMap<>();
+  private static final  Map<String, Integer>  totalen =
+      new ConcurrentHashMap<>();
+
+  private static  int threads = 1;
 
   protected DbNaarJson() {}
 
   private static void addRang(String rang) {
-    totalen.put(rang, totalen.get(rang)+1);
+    totalen.merge(rang, 1, Integer::sum);
   }
 
   public static void execute(String[] args) {
@@ -72,32 +87,34 @@ public class DbNaarJson extends Batchjob {
               .build()) {
       var em  = dbConn.getEntityManager();
 
-      var taxoninfo = paramBundle.getString(NatuurTools.PAR_TAXAROOT)
-                                 .split(",");
+      threads = Math.max(1, paramBundle.getInteger(NatuurTools.PAR_THREADS));
+
+      var roots   = paramBundle.getString(NatuurTools.PAR_TAXAROOT)
+                               .split(SCHEIDING);
       getRangen(em);
 
-      var namen   = new JSONObject();
-      var parent  = NatuurTools.getTaxon(taxoninfo[1], em);
-      var root    = new JSONObject();
-
-      root.put(NatuurTools.KEY_LATIJN, parent.getLatijnsenaam());
-      root.put(NatuurTools.KEY_RANG, parent.getRang());
-      root.put(NatuurTools.KEY_SEQ, parent.getVolgnummer());
-      root.put(NatuurTools.KEY_UITGESTORVEN, parent.isUitgestorven());
-      parent.getTaxonnamen().forEach(naam -> namen.put(naam.getTaal(),
-                                                       naam.getNaam()));
-      if (!namen.isEmpty()) {
-        root.put(NatuurTools.KEY_NAMEN, namen);
+      Map<String, TaxonDto> parents = new LinkedHashMap<>();
+      for (var root : roots) {
+        var latijnsenaam  = root.split(",")[1].trim();
+        parents.put(latijnsenaam, NatuurTools.getTaxon(latijnsenaam, em));
       }
 
-      var subRangen = verwerkKinderen(parent.getTaxonId(), em);
-      if (!subRangen.isEmpty()) {
-        root.put(NatuurTools.KEY_SUBRANGEN, subRangen);
-      }
+      var boom    = new Taxaboom(em, parents.values());
+      if (parents.size() == 1) {
+        var parent  = parents.values().iterator().next();
+        var root    = naarJson(parent);
+
+        // De taxa uit de Taxaboom worden in de threads 'detached' gebruikt.
+        if (threads > 1) {
+          em.clear();
+        }
 
-      NatuurTools.writeJson(paramBundle.getBestand(PAR_JSONBESTAND,
-                                                   BestandConstants.EXT_JSON),
-                            root, paramBundle.getString(PAR_CHARSETUIT));
+        schrijfJson(paramBundle.getBestand(PAR_JSONBESTAND,
+                                           BestandConstants.EXT_JSON),
+                    root, parent.getTaxonId(), boom, threads > 1);
+      } else {
+        verwerkRoots(parents, boom, em);
+      }
     } catch (Exception e) {
       DoosUtils.foutNaarScherm(e.getLocalizedMessage());
     }
@@ -106,6 +123,23 @@ public class DbNaarJson extends Batchjob {
     klaar();
   }
 
+  /**
+   * Geeft het JSON-bestand van 1 van de roots. Het is het JSON-bestand met
+   * '_' en de latijnse naam van de root voor de extensie.
+   */
+  private static String getJsonbestand(String latijnsenaam) {
+    var bestand = paramBundle.getBestand(PAR_JSONBESTAND,
+                                         BestandConstants.EXT_JSON);
+    var punt    = bestand.lastIndexOf('.');
+    if (punt < Math.max(bestand.lastIndexOf('/'),
+                        bestand.lastIndexOf('\\'))) {
+      punt  = bestand.length();
+    }
+
+    return bestand.substring(0, punt) + "_" + latijnsenaam
+            + bestand.substring(punt);
+  }
+
   private static void getRangen(EntityManager em) {
     List<RangDto> ranglijst = em.createQuery(QRY_RANG).getResultList();
 
@@ -115,42 +149,167 @@ public class DbNaarJson extends Batchjob {
     });
   }
 
-  private static JSONArray verwerkKinderen(Long parentId, EntityManager em) {
-    var jsonRangen  = new JSONArray();
-    var query       = em.createNamedQuery(TaxonDto.QRY_KINDEREN);
-    query.setParameter(TaxonDto.PAR_OUDER, parentId);
-    List<TaxonDto>  taxa = new ArrayList<>();
-    try {
-      taxa  = query.getResultList();
-    } catch (NoResultException e) {
-      // taxa is nog steeds een lege List.
+  private static JSONObject naarJson(TaxonDto taxon) {
+    var json  = new JSONObject();
+    var namen = new JSONObject();
+    json.put(NatuurTools.KEY_LATIJN, taxon.getLatijnsenaam());
+    json.put(NatuurTools.KEY_RANG, taxon.getRang());
+    json.put(NatuurTools.KEY_SEQ, taxon.getVolgnummer());
+    json.put(NatuurTools.KEY_UITGESTORVEN, taxon.isUitgestorven());
+    taxon.getTaxonnamen().forEach(naam -> namen.put(naam.getTaal(),
+                                                    naam.getNaam()));
+    if (!namen.isEmpty()) {
+      json.put(NatuurTools.KEY_NAMEN, namen);
+    }
+
+    return json;
+  }
+
+  /**
+   * Schrijft een deelboom naar een String. Deze kan daarna als fragment in
+   * de lijst van de root gezet worden.
+   */
+  private static String schrijfDeelboom(TaxonDto taxon, Taxaboom boom)
+      throws BestandException {
+    var fragment  = new StringWriter();
+    try (var schrijver  = new JsonSchrijver(fragment, true, 2)) {
+      schrijfTaxon(taxon, boom, schrijver);
+    }
+
+    return fragment.toString();
+  }
+
+  /**
+   * Schrijft de tak, diepte eerst, direct naar het JSON-bestand. Enkel de
+   * taxa op het pad naar het huidige taxon staan als JSONObject in het
+   * geheugen.
+   */
+  private static void schrijfJson(String bestand, JSONObject json,
+                                  Long rootId, Taxaboom boom,
+                                  boolean parallel)
+      throws BestandException {
+    var charset = paramBundle.getString(PAR_CHARSETUIT);
+
+    if (boom.getKinderen(rootId).isEmpty()) {
+      NatuurTools.writeJson(bestand, json, charset);
+      return;
     }
 
-    taxa.forEach(taxon -> {
-      addRang(taxon.getRang());
-      var jsonRang  = new JSONObject();
-      var namen     = new JSONObject();
-      jsonRang.put(NatuurTools.KEY_LATIJN, taxon.getLatijnsenaam());
-      jsonRang.put(NatuurTools.KEY_RANG, taxon.getRang());
-      jsonRang.put(NatuurTools.KEY_SEQ, taxon.getVolgnummer());
-      jsonRang.put(NatuurTools.KEY_UITGESTORVEN, taxon.isUitgestorven());
-      taxon.getTaxonnamen().forEach(naam -> namen.put(naam.getTaal(),
-                                                      naam.getNaam()));
-      if (!namen.isEmpty()) {
-        jsonRang.put(NatuurTools.KEY_NAMEN, namen);
+    // De lege lijst houdt de plaats van de subrangen in het object vast.
+    json.put(NatuurTools.KEY_SUBRANGEN, new JSONArray());
+    try (var schrijver  = new JsonSchrijver(bestand, charset, true, false)) {
+      schrijver.begin(json, NatuurTools.KEY_SUBRANGEN);
+      if (parallel) {
+        verwerkParallel(rootId, boom, schrijver);
+      } else {
+        verwerkKinderen(rootId, boom, schrijver);
       }
-      JSONArray subRangen = verwerkKinderen(taxon.getTaxonId(), em);
-      if (!subRangen.isEmpty()) {
-        jsonRang.put(NatuurTools.KEY_SUBRANGEN, subRangen);
+      schrijver.sluit();
+    }
+  }
+
+  private static void schrijfTaxon(TaxonDto taxon, Taxaboom boom,
+                                   JsonSchrijver schrijver)
+      throws BestandException {
+    addRang(taxon.getRang());
+    var json  = naarJson(taxon);
+    if (boom.getKinderen(taxon.getTaxonId()).isEmpty()) {
+      schrijver.schrijf(json);
+    } else {
+      json.put(NatuurTools.KEY_SUBRANGEN, new JSONArray());
+      schrijver.openElement(json, NatuurTools.KEY_SUBRANGEN);
+      verwerkKinderen(taxon.getTaxonId(), boom, schrijver);
+      schrijver.sluitElement();
+    }
+  }
+
+  /**
+   * De kinderen komen uit de Taxaboom. Die heeft de volledige tak, met de
+   * namen, in een paar queries per niveau geladen.
+   */
+  private static void verwerkKinderen(Long parentId, Taxaboom boom,
+                                      JsonSchrijver schrijver)
+      throws BestandException {
+    for (var taxon : boom.getKinderen(parentId)) {
+      schrijfTaxon(taxon, boom, schrijver);
+    }
+  }
+
+  /**
+   * Schrijft de deelbomen direct onder de root tegelijk, elk naar een eigen
+   * fragment. De fragmenten worden in de volgorde van de kinderen, dus van
+   * het volgnummer, in het bestand gezet. Er worden nooit meer deelbomen
+   * gestart dan er threads zijn boven het fragment dat nog geschreven moet
+   * worden. Er staan dus hooguit 'threads' fragmenten in het geheugen.
+   */
+  private static void verwerkParallel(Long rootId, Taxaboom boom,
+                                      JsonSchrijver schrijver)
+      throws BestandException {
+    var                   executor  = Executors.newFixedThreadPool(threads);
+    var                   kinderen  = boom.getKinderen(rootId).iterator();
+    Deque<Future<String>> taken     = new ArrayDeque<>();
+
+    try {
+      while (kinderen.hasNext() || !taken.isEmpty()) {
+        while (kinderen.hasNext() && taken.size() < threads) {
+          var taxon = kinderen.next();
+          taken.add(executor.submit(() -> schrijfDeelboom(taxon, boom)));
+        }
+        schrijver.schrijfFragment(taken.poll().get());
       }
+    } catch (ExecutionException e) {
+      throw new BestandException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BestandException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 
-      try {
-        jsonRangen.add(parser.parse(jsonRang.toString()));
-      } catch (ParseException e) {
-        DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+  /**
+   * Schrijft elke root, uit dezelfde Taxaboom, naar een eigen JSON-bestand.
+   * Met meerdere threads worden de roots tegelijk geschreven.
+   */
+  private static void verwerkRoots(Map<String, TaxonDto> parents,
+                                   Taxaboom boom, EntityManager em) {
+    Map<String, JSONObject> roots = new LinkedHashMap<>();
+    parents.forEach((latijnsenaam, parent) -> {
+      if (null == parent.getTaxonId()) {
+        DoosUtils.naarScherm(
+            MessageFormat.format(
+                resourceBundle.getString(NatuurTools.MSG_BESTAANTNIET),
+                latijnsenaam));
+      } else {
+        roots.put(latijnsenaam, naarJson(parent));
       }
     });
 
-    return jsonRangen;
+    // De taxa uit de Taxaboom worden in de threads 'detached' gebruikt.
+    if (threads > 1) {
+      em.clear();
+    }
+
+    var             executor  = Executors.newFixedThreadPool(threads);
+    List<Future<?>> taken     = new ArrayList<>();
+    roots.forEach((latijnsenaam, root) ->
+        taken.add(executor.submit(() -> {
+          schrijfJson(getJsonbestand(latijnsenaam), root,
+                      parents.get(latijnsenaam).getTaxonId(), boom, false);
+          return null;
+        })));
+    executor.shutdown();
+
+    for (var taak : taken) {
+      try {
+        taak.get();
+      } catch (ExecutionException e) {
+        DoosUtils.foutNaarScherm(e.getCause().getLocalizedMessage());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        executor.shutdownNow();
+        return;
+      }
+    }
   }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.access.JsonBestand;
+import eu.debooy.doosutils.exception.BestandException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+
+/**
+ * Een hash, per taxon, over de latijnse naam van de parent, de latijnse naam,
+ * rang, seq, uitgestorven en namen van het taxon en de hashes van zijn
+ * subrangen. Is de hash gelijk aan die van de vorige verwerking dan is de
+ * volledige deelboom ongewijzigd en staat hij nog onder dezelfde parent.
+ *
+ * De hashes van de vorige verwerking worden enkel gebruikt als die met
+ * dezelfde sleutel (de opties van de verwerking) gemaakt zijn.
+ *
+ * @author Marco de Booij
+ */
+public class Deelboomhashes {
+  protected static final  String  ALGORITME   = "SHA-256";
+  protected static final  String  KEY_HASHES  = "hashes";
+  protected static final  String  KEY_SLEUTEL = "sleutel";
+
+  private final String                    bestand;
+  private final Map<JSONObject, String>   berekend  = new IdentityHashMap<>();
+  private final String                    charset;
+  private final Map<String, String>       hashes    =
+      new ConcurrentHashMap<>();
+  private final HexFormat                 hex       = HexFormat.of();
+  private final String                    sleutel;
+  private final Map<String, String>       vorige    = new HashMap<>();
+
+  public Deelboomhashes(String bestand, String charset, String sleutel) {
+    this.bestand  = bestand;
+    this.charset  = charset;
+    this.sleutel  = sleutel;
+  }
+
+  /**
+   * Berekent de hashes van alle taxa onder de subrangen. Dit moet gebeuren
+   * voor de verwerking begint.
+   */
+  public void bereken(String parent, JSONArray subrangen) {
+    subrangen.forEach(subrang -> bereken(parent, (JSONObject) subrang));
+  }
+
+  private byte[] bereken(String parent, JSONObject json) {
+    MessageDigest md;
+    try {
+      md  = MessageDigest.getInstance(ALGORITME);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    // Een taxon dat verhuist is niet ongewijzigd.
+    voegToe(md, parent);
+    voegToe(md, json.get(NatuurTools.KEY_LATIJN));
+    voegToe(md, json.get(NatuurTools.KEY_RANG));
+    voegToe(md, json.get(NatuurTools.KEY_SEQ));
+    voegToe(md, json.get(NatuurTools.KEY_UITGESTORVEN));
+    if (json.containsKey(NatuurTools.KEY_NAMEN)) {
+      new TreeMap<Object, Object>((JSONObject) json.get(NatuurTools.KEY_NAMEN))
+          .forEach((taal, naam) -> {
+            voegToe(md, taal);
+            voegToe(md, naam);
+          });
+    }
+    if (json.containsKey(NatuurTools.KEY_SUBRANGEN)) {
+      for (var subrang : (JSONArray) json.get(NatuurTools.KEY_SUBRANGEN)) {
+        md.update(bereken(getLatijnsenaam(json), (JSONObject) subrang));
+      }
+    }
+
+    var hash  = md.digest();
+    berekend.put(json, hex.formatHex(hash));
+
+    return hash;
+  }
+
+  public void bewaar(JSONObject json) {
+    var hash  = berekend.get(json);
+    if (null != hash) {
+      hashes.put(getLatijnsenaam(json), hash);
+    }
+  }
+
+  private static String getLatijnsenaam(JSONObject json) {
+    return json.get(NatuurTools.KEY_LATIJN).toString();
+  }
+
+  public boolean isOngewijzigd(JSONObject json) {
+    var hash  = berekend.get(json);
+
+    return null != hash && hash.equals(vorige.get(getLatijnsenaam(json)));
+  }
+
+  public void lees() throws BestandException {
+    if (!Files.exists(Paths.get(bestand))) {
+      return;
+    }
+
+    try (var jsonBestand  =
+          new JsonBestand.Builder()
+                         .setBestand(bestand)
+                         .setCharset(charset)
+                         .build()) {
+      if (!sleutel.equals(jsonBestand.get(KEY_SLEUTEL))) {
+        return;
+      }
+
+      var lijst = (JSONObject) jsonBestand.get(KEY_HASHES);
+      if (null != lijst) {
+        lijst.forEach((latijn, hash) ->
+            vorige.put(latijn.toString(), hash.toString()));
+      }
+    }
+
+    // Overgeslagen deelbomen houden hun hashes.
+    hashes.putAll(vorige);
+  }
+
+  public void schrijf() {
+    var json  = new JSONObject();
+    var lijst = new JSONObject();
+    lijst.putAll(new TreeMap<>(hashes));
+    json.put(KEY_HASHES, lijst);
+    json.put(KEY_SLEUTEL, sleutel);
+
+    NatuurTools.writeJson(bestand, json, charset);
+  }
+
+  public void vergeet(JSONObject json) {
+    hashes.remove(getLatijnsenaam(json));
+  }
+
+  private static void voegToe(MessageDigest md, Object waarde) {
+    if (null != waarde) {
+      md.update(waarde.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    md.update((byte) 0);
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.DoosUtils;
+import eu.debooy.doosutils.exception.BestandException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+
+/**
+ * Sorteert rijen op hun eerste velden. Er zitten nooit meer dan 'grootte'
+ * rijen in het geheugen. Zijn er meer rijen dan worden ze, per deel,
+ * gesorteerd in een tijdelijk bestand gezet en bij het verwerken samengevoegd.
+ *
+ * Rijen met dezelfde sleutel blijven niet noodzakelijk in hun volgorde. Geef
+ * daarom, als laatste sleutel, het volgnummer van de rij mee.
+ *
+ * @author Marco de Booij
+ */
+public class ExterneSortering implements AutoCloseable {
+  private static final  int     BUFFER  = 65536;
+  private static final  String  PREFIX  = "natuurtools";
+  private static final  String  SUFFIX  = ".sort";
+
+  private final List<Path>            delen   = new ArrayList<>();
+  private final int                   grootte;
+  private final List<String[]>        rijen;
+  private final Comparator<String[]>  volgorde;
+
+  private static class Deel {
+    private final DataInputStream invoer;
+
+    private String[]  rij;
+
+    Deel(Path bestand) throws IOException {
+      invoer  = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(bestand),
+                                            BUFFER));
+    }
+
+    boolean volgende() throws IOException {
+      int velden;
+      try {
+        velden  = invoer.readInt();
+      } catch (EOFException e) {
+        rij = null;
+        invoer.close();
+        return false;
+      }
+
+      rij = new String[velden];
+      for (var i = 0; i < velden; i++) {
+        rij[i]  = invoer.readUTF();
+      }
+
+      return true;
+    }
+  }
+
+  /**
+   * @param grootte   Het maximum aantal rijen in het geheugen.
+   * @param sleutels  Het aantal velden, vooraan in de rij, waarop gesorteerd
+   *                  wordt.
+   */
+  public ExterneSortering(int grootte, int sleutels) {
+    this.grootte  = Math.max(grootte, 1);
+    rijen         = new ArrayList<>(Math.min(this.grootte, BUFFER));
+    volgorde      = (een, twee) -> {
+      for (var i = 0; i < sleutels; i++) {
+        var verschil  = een[i].compareTo(twee[i]);
+        if (verschil != 0) {
+          return verschil;
+        }
+      }
+      return 0;
+    };
+  }
+
+  @Override
+  public void close() {
+    for (var deel : delen) {
+      try {
+        Files.deleteIfExists(deel);
+      } catch (IOException e) {
+        DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+      }
+    }
+    delen.clear();
+  }
+
+  private void schrijfDeel() throws BestandException {
+    rijen.sort(volgorde);
+
+    try {
+      var bestand = Files.createTempFile(PREFIX, SUFFIX);
+      delen.add(bestand);
+      try (var uitvoer  =
+            new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(bestand),
+                                         BUFFER))) {
+        for (var rij : rijen) {
+          uitvoer.writeInt(rij.length);
+          for (var veld : rij) {
+            uitvoer.writeUTF(DoosUtils.nullToEmpty(veld));
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new BestandException(e);
+    }
+
+    rijen.clear();
+  }
+
+  /**
+   * Geeft alle rijen, gesorteerd, aan de verwerker.
+   */
+  public void verwerk(Consumer<String[]> verwerker) throws BestandException {
+    if (delen.isEmpty()) {
+      rijen.sort(volgorde);
+      rijen.forEach(verwerker);
+      rijen.clear();
+      return;
+    }
+
+    if (!rijen.isEmpty()) {
+      schrijfDeel();
+    }
+
+    PriorityQueue<Deel> wachtrij  =
+        new PriorityQueue<>(delen.size(),
+                            (een, twee) -> volgorde.compare(een.rij, twee.rij));
+    try {
+      for (var bestand : delen) {
+        var deel  = new Deel(bestand);
+        if (deel.volgende()) {
+          wachtrij.add(deel);
+        }
+      }
+
+      while (!wachtrij.isEmpty()) {
+        var deel  = wachtrij.poll();
+        verwerker.accept(deel.rij);
+        if (deel.volgende()) {
+          wachtrij.add(deel);
+        }
+      }
+    } catch (IOException e) {
+      throw new BestandException(e);
+    } finally {
+      for (var deel : wachtrij) {
+        try {
+          deel.invoer.close();
+        } catch (IOException e) {
+          DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+        }
+      }
+      close();
+    }
+  }
+
+  public void voegToe(String[] rij) throws BestandException {
+    rijen.add(rij);
+    if (rijen.size() >= grootte) {
+      schrijfDeel();
+    }
+  }
+}
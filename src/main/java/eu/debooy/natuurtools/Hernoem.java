@@ -78,7 +78,11 @@ public class Hernoem extends Batchjob {
               .build()) {
       em  = dbConn.getEntityManager();
 
-      taxa.forEach(Hernoem::hernoemTaxon);
+      taxa.forEach((huidig, nieuw) -> {
+        hernoemTaxon(huidig, nieuw);
+        // Elke regel is gecommit. Zo groeit de persistence context niet.
+        em.clear();
+      });
     } catch (Exception e) {
       DoosUtils.foutNaarScherm(e.getLocalizedMessage());
     }
@@ -232,7 +236,7 @@ public class Hernoem extends Batchjob {
   private static TaxonDto setTaxon(TaxonDto taxon) {
     em.getTransaction().begin();
     TaxonDto  updated;
-    if (null == taxon.getTaxonId()) {
+    if (null == taxon.getTaxonId() || !em.contains(taxon)) {
       updated = em.merge(taxon);
     } else {
     updated = taxon;
@@ -39,45 +39,68 @@ import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
 
 /**
  * @author Marco de Booij
  */
 public class IocData extends Batchjob {
-  private static final  JSONObject      familie         = new JSONObject();
-  private static final  JSONArray       families        = new JSONArray();
-  private static final  JSONObject      geslacht        = new JSONObject();
-  private static final  JSONArray       geslachten      = new JSONArray();
-  private static final  JSONObject      ondersoort      = new JSONObject();
-  private static final  JSONArray       ondersoorten    = new JSONArray();
-  private static final  JSONObject      orde            = new JSONObject();
+  protected static final  String  PAR_NAMEN     = "namen";
+  protected static final  String  PAR_TAALIDS   = "ids";
+  protected static final  String  QRY_TAALNAMEN =
+      "select n from TaalnaamDto n "
+          + "where n.iso6392t = :iso6392t and n.naam in :namen";
+  protected static final  String  QRY_TALEN     =
+      "select distinct t from TaalDto t left join fetch t.taalnamen "
+          + "where t.taalId in :ids";
+
   private static final  JSONArray       ordes           = new JSONArray();
-  private static final  JSONParser      parser          = new JSONParser();
   private static final  List<String>    rangen          = new ArrayList<>();
   private static final  ResourceBundle  resourceBundle  =
       ResourceBundle.getBundle("ApplicatieResources", Locale.getDefault());
-  private static final  JSONObject      soort           = new JSONObject();
-  private static final  JSONArray       soorten         = new JSONArray();
+  // De talen, per taalId, van deze verwerking.
+  private static final  Map<Long, TaalDto>
+                                        taalcache       = new HashMap<>();
   private static final  Map<String, Integer>
                                         taaltotalen     = new HashMap<>();
   private static final  Map<String, Integer>
                                         totalen         = new HashMap<>();
+  private static final  List<JSONObject>
+                                        zonderNamen     = new ArrayList<>();
+
+  // Een afgewerkt taxon wordt, zonder kopie, in zijn parent gezet. Daarna
+  // wordt er met een nieuw object verder gewerkt.
+  private static  JSONObject  familie       = new JSONObject();
+  private static  JSONArray   families      = new JSONArray();
+  private static  JSONObject  geslacht      = new JSONObject();
+  private static  JSONArray   geslachten    = new JSONArray();
+  private static  JSONArray   ondersoorten  = new JSONArray();
+  private static  JSONObject  orde          = new JSONObject();
+  private static  JSONObject  soort         = new JSONObject();
+  private static  JSONArray   soorten       = new JSONArray();
+
+  private static  Integer       factor        =
+      NatuurConstants.VOLGNUMMERFACTOR;
+  private static  boolean       perRang       = false;
+  private static  Namentabel    namentabel    = null;
+  // Klaar als alle namen in de namentabel staan.
+  private static  CompletableFuture<Void>
+                                namenGelezen  =
+      CompletableFuture.completedFuture(null);
+  private static  JsonSchrijver schrijver     = null;
+  private static  Integer       sequence      = 0;
+  private static  String        strtaal       = "";
+  private static  String[]      taalkolom;
+  private static  String        vorigGeslacht = "";
+  private static  String        vorigeSoort   = "";
 
-  private static  Integer   factor        = NatuurConstants.VOLGNUMMERFACTOR;
-  private static  boolean   perRang       = false;
-  private static  Integer   sequence      = 0;
-  private static  String    strtaal       = "";
-  private static  String[]  taalkolom;
-  private static  String    vorigGeslacht = "";
-  private static  String    vorigeSoort   = "";
-
-  private static final  Map<String, String> cache     = new TreeMap<>();
   private static final  Set<String>         taal      = new TreeSet<>();
   private static final  Map<String, String> taalnaam  = new TreeMap<>();
 
@@ -117,11 +140,18 @@ public class IocData extends Batchjob {
     }
 
     var taxa    = new JSONObject();
+    taxa.put(NatuurTools.KEY_RANG, NatuurConstants.RANG_KLASSE);
+    taxa.put(NatuurTools.KEY_LATIJN, NatuurConstants.LAT_VOGELS);
+    taxa.put(NatuurTools.KEY_SUBRANGEN, ordes);
     verwerkNamen();
-    var lijnen  = verwerkStructuur(taxa);
+    if (!openSchrijver(taxa)) {
+      wachtOpNamen();
+      return;
+    }
+    var lijnen  = verwerkStructuur();
 
-    NatuurTools.writeJson(paramBundle.getBestand(NatuurTools.PAR_JSON),
-                          taxa, paramBundle.getString(PAR_CHARSETUIT));
+    wachtOpNamen();
+    schrijfTaxa(taxa);
 
     var melding =
         MessageFormat.format(resourceBundle.getString(NatuurTools.MSG_TALEN),
@@ -154,7 +184,68 @@ public class IocData extends Batchjob {
     klaar();
   }
 
-  private static int getVolgnummer(String rang) {
+  /**
+   * Zoekt de namen van alle kolommen in 1 query op en zet hun talen, ook in
+   * 1 query, in de taalcache. Lukt dit niet dan worden de namen per kolom
+   * opgezocht en de talen per taal gelezen.
+   */
+  private static Map<String, TaalnaamDto> getTaalnamen(String csvtaal,
+                                                       EntityManager em) {
+    Map<String, TaalnaamDto>  taalnamen = new HashMap<>();
+    taalcache.clear();
+
+    var kolomnamen  = Arrays.stream(taalkolom)
+                            .filter(DoosUtils::isNotBlankOrNull)
+                            .distinct()
+                            .collect(Collectors.toList());
+    if (kolomnamen.isEmpty()) {
+      return taalnamen;
+    }
+
+    try {
+      List<TaalnaamDto> lijst =
+          em.createQuery(QRY_TAALNAMEN)
+            .setParameter(TaalnaamDto.PAR_TAAL, csvtaal)
+            .setParameter(PAR_NAMEN, kolomnamen)
+            .getResultList();
+      lijst.forEach(taalnaamDto ->
+          taalnamen.putIfAbsent(taalnaamDto.getNaam(), taalnaamDto));
+    } catch (PersistenceException e) {
+      DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+      var naamquery = em.createNamedQuery(TaalnaamDto.QRY_METTAAL);
+      for (var kolomnaam : kolomnamen) {
+        List<TaalnaamDto> lijst =
+            naamquery.setParameter(TaalnaamDto.PAR_TAAL, csvtaal)
+                     .setParameter(TaalnaamDto.PAR_NAAM, kolomnaam)
+                     .getResultList();
+        if (!lijst.isEmpty()) {
+          taalnamen.put(kolomnaam, lijst.get(0));
+        }
+      }
+    }
+    if (taalnamen.isEmpty()) {
+      return taalnamen;
+    }
+
+    try {
+      List<TaalDto> talen =
+          em.createQuery(QRY_TALEN)
+            .setParameter(PAR_TAALIDS,
+                          taalnamen.values().stream()
+                                   .map(TaalnaamDto::getTaalId)
+                                   .distinct()
+                                   .collect(Collectors.toList()))
+            .getResultList();
+      talen.forEach(taalDto -> taalcache.put(taalDto.getTaalId(), taalDto));
+    } catch (PersistenceException e) {
+      // taalUitDatabase leest de ontbrekende talen 1 per 1.
+      DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+    }
+
+    return taalnamen;
+  }
+
+  private static long getVolgnummer(String rang) {
     if (!perRang) {
       return sequence;
     }
@@ -162,57 +253,102 @@ public class IocData extends Batchjob {
     return totalen.get(rang);
   }
 
-  private static void nieuwGeslacht() throws ParseException {
+  private static void nieuwGeslacht() {
     nieuweSoort();
     if (!geslacht.isEmpty()) {
       if (!soorten.isEmpty()) {
-        geslacht.put(NatuurTools.KEY_SUBRANGEN,
-                     parser.parse(soorten.toString()));
-        soorten.clear();
+        geslacht.put(NatuurTools.KEY_SUBRANGEN, soorten);
+        soorten     = new JSONArray();
       }
-      geslachten.add(parser.parse(geslacht.toString()));
-      geslacht.clear();
+      geslachten.add(geslacht);
+      geslacht      = new JSONObject();
     }
   }
 
-  private static void nieuweFamilie() throws ParseException {
+  private static void nieuweFamilie() {
     nieuwGeslacht();
     if (!familie.isEmpty()) {
       if (!geslachten.isEmpty()) {
-        familie.put(NatuurTools.KEY_SUBRANGEN,
-                    parser.parse(geslachten.toString()));
-        geslachten.clear();
+        familie.put(NatuurTools.KEY_SUBRANGEN, geslachten);
+        geslachten  = new JSONArray();
       }
-      families.add(parser.parse(familie.toString()));
-      familie.clear();
+      families.add(familie);
+      familie       = new JSONObject();
     }
   }
 
-  private static void nieuweOrde() throws ParseException {
+  private static void nieuweOrde() throws BestandException {
     nieuweFamilie();
     if (!orde.isEmpty()) {
       if (!families.isEmpty()) {
-        orde.put(NatuurTools.KEY_SUBRANGEN, parser.parse(families.toString()));
-        families.clear();
+        orde.put(NatuurTools.KEY_SUBRANGEN, families);
+        families    = new JSONArray();
       }
-      ordes.add(parser.parse(orde.toString()));
-      orde.clear();
+      if (null == schrijver) {
+        ordes.add(orde);
+      } else {
+        zetNamenVanOrde();
+        schrijver.schrijf(orde);
+      }
+      orde          = new JSONObject();
     }
   }
 
-  private static void nieuweSoort() throws ParseException {
+  private static void nieuweSoort() {
     if (!soort.isEmpty()) {
       if (!ondersoorten.isEmpty()) {
-        soort.put(NatuurTools.KEY_SUBRANGEN,
-                  parser.parse(ondersoorten.toString()));
-        ondersoorten.clear();
+        soort.put(NatuurTools.KEY_SUBRANGEN, ondersoorten);
+        ondersoorten  = new JSONArray();
       }
-      var latijn  = (String) soort.get(NatuurTools.KEY_LATIJN);
-      if (cache.containsKey(latijn)) {
-        soort.put(NatuurTools.KEY_NAMEN, parser.parse(cache.get(latijn)));
+      // Zolang de namen gelezen worden komen ze later.
+      if (namenGelezen.isDone()) {
+        zetNamen(soort);
+      } else {
+        zonderNamen.add(soort);
       }
-      soorten.add(parser.parse(soort.toString()));
-      soort.clear();
+      soorten.add(soort);
+      soort         = new JSONObject();
+    }
+  }
+
+  private static boolean openSchrijver(JSONObject taxa) {
+    schrijver = null;
+    if (!paramBundle.getBoolean(NatuurTools.PAR_STROOM)
+        && !paramBundle.getBoolean(NatuurTools.PAR_COMPACT)
+        && !paramBundle.getBoolean(NatuurTools.PAR_GZIP)) {
+      return true;
+    }
+
+    try {
+      schrijver =
+          new JsonSchrijver(paramBundle.getBestand(NatuurTools.PAR_JSON),
+                            paramBundle.getString(PAR_CHARSETUIT),
+                            !paramBundle.getBoolean(NatuurTools.PAR_COMPACT),
+                            paramBundle.getBoolean(NatuurTools.PAR_GZIP));
+      schrijver.begin(taxa, NatuurTools.KEY_SUBRANGEN);
+    } catch (BestandException e) {
+      DoosUtils.foutNaarScherm(String.format("%s: %s",
+              paramBundle.getBestand(NatuurTools.PAR_JSON),
+                                             e.getLocalizedMessage()));
+      return false;
+    }
+
+    return true;
+  }
+
+  private static void schrijfTaxa(JSONObject taxa) {
+    if (null == schrijver) {
+      NatuurTools.writeJson(paramBundle.getBestand(NatuurTools.PAR_JSON),
+                            taxa, paramBundle.getString(PAR_CHARSETUIT));
+      return;
+    }
+
+    try {
+      schrijver.sluit();
+    } catch (BestandException e) {
+      DoosUtils.foutNaarScherm(String.format("%s: %s",
+              paramBundle.getBestand(NatuurTools.PAR_JSON),
+                                             e.getLocalizedMessage()));
     }
   }
 
@@ -227,10 +363,21 @@ public class IocData extends Batchjob {
     }
   }
 
+  private static void sluitNamen(CsvBestand csvBestand) {
+    try {
+      csvBestand.close();
+    } catch (BestandException e) {
+      DoosUtils.foutNaarScherm(String.format("%s: %s",
+              paramBundle.getBestand(NatuurTools.PAR_IOCNAMEN),
+                                             e.getLocalizedMessage()));
+    }
+  }
+
   private static String taalUitDatabase(String csvtaal, String gebruikerstaal,
-                                        List<TaalnaamDto> taalnaamDto, int i,
+                                        TaalnaamDto taalnaamDto, int i,
                                         EntityManager em) {
-    var taalDto = em.find(TaalDto.class, taalnaamDto.get(0).getTaalId());
+    var taalDto = taalcache.computeIfAbsent(taalnaamDto.getTaalId(),
+                                            id -> em.find(TaalDto.class, id));
     if (taalDto.getIso6392t().equals(csvtaal)) {
       strtaal = taalDto.getIso6392t();
     }
@@ -288,65 +435,94 @@ public class IocData extends Batchjob {
                         .setParameter(TaalDto.PAR_ISO6391,
                                       Locale.getDefault().getLanguage())
                         .getSingleResult()).getIso6392t();
-      var naamquery       = em.createNamedQuery(TaalnaamDto.QRY_METTAAL);
+      var taalnamen       = getTaalnamen(csvtaal, em);
 
       for (var i =0; i < taalkolom.length; i++) {
-        naamquery.setParameter(TaalnaamDto.PAR_TAAL, csvtaal);
-        naamquery.setParameter(TaalnaamDto.PAR_NAAM, taalkolom[i]);
-        var taalnaamDto = naamquery.getResultList();
+        var taalnaamDto = taalnamen.get(taalkolom[i]);
 
-        if (taalnaamDto.isEmpty()) {
+        if (null == taalnaamDto) {
           taalkolom[i]  = "";
         } else {
-          taalUitDatabase(csvtaal, gebruikerstaal, taalnaamDto, i, em);
+          try {
+            taalUitDatabase(csvtaal, gebruikerstaal, taalnaamDto, i, em);
+          } catch (PersistenceException e) {
+            // Enkel deze kolom valt weg.
+            DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+            taalkolom[i]  = "";
+          }
         }
       }
     } catch (Exception e) {
+      // Zonder database, klasse of gebruikerstaal kan geen enkele kolom aan
+      // een taal gekoppeld worden. Een fout in 1 kolom komt hier niet.
       DoosUtils.foutNaarScherm(e.getLocalizedMessage());
       taalkolom = new String[0];
     }
   }
 
+  /**
+   * Leest de header van het namenbestand. De namen zelf worden in een eigen
+   * thread gelezen terwijl de structuur verwerkt wordt.
+   */
   private static void verwerkNamen() {
-    try (var csvBestand  =
+    namentabel    = null;
+    namenGelezen  = CompletableFuture.completedFuture(null);
+
+    CsvBestand  csvBestand;
+    try {
+      csvBestand  =
           new CsvBestand.Builder()
                         .setBestand(
                             paramBundle.getBestand(NatuurTools.PAR_IOCNAMEN))
                         .setCharset(paramBundle.getString(PAR_CHARSETIN))
                         .setHeader(true)
-                        .build()) {
+                        .build();
+    } catch (BestandException e) {
+      DoosUtils.foutNaarScherm(String.format("%s: %s",
+              paramBundle.getBestand(NatuurTools.PAR_IOCNAMEN),
+                                             e.getLocalizedMessage()));
+      return;
+    }
 
-      taalkolom = Arrays.copyOfRange(csvBestand.getKolomNamen(), 4,
-                                     csvBestand.getKolomNamen().length);
-      verwerkHeader();
+    taalkolom = Arrays.copyOfRange(csvBestand.getKolomNamen(), 4,
+                                   csvBestand.getKolomNamen().length);
+    verwerkHeader();
 
-      if (taalkolom.length == 0) {
-        return;
-      }
+    if (taalkolom.length == 0) {
+      sluitNamen(csvBestand);
+      return;
+    }
+
+    namentabel    = new Namentabel(taalkolom);
+    namenGelezen  = CompletableFuture.runAsync(() -> verwerkNamen(csvBestand));
+  }
 
-      var namen = new JSONObject();
+  private static void verwerkNamen(CsvBestand csvBestand) {
+    try {
       while(csvBestand.hasNext()) {
         var veld          = csvBestand.next();
         var latijnsenaam  = NatuurUtils.formatLatijnsenaam(veld[3]);
+        var namen         = Arrays.copyOfRange(veld, 4, veld.length);
 
-        namen.clear();
         for (var i = 0; i < taalkolom.length; i++) {
           if (DoosUtils.isNotBlankOrNull(taalkolom[i])
-              && DoosUtils.isNotBlankOrNull(veld[i+4])) {
-            namen.put(taalkolom[i], veld[i+4]);
+              && DoosUtils.isNotBlankOrNull(namen[i])) {
             addTaal(taalkolom[i]);
           }
         }
-        cache.put(latijnsenaam, namen.toString());
+        namentabel.voegToe(latijnsenaam, namen);
       }
     } catch (BestandException e) {
       DoosUtils.foutNaarScherm(String.format("%s: %s",
               paramBundle.getBestand(NatuurTools.PAR_IOCNAMEN),
                                              e.getLocalizedMessage()));
+    } finally {
+      namentabel.sluit();
+      sluitNamen(csvBestand);
     }
   }
 
-  private static int verwerkStructuur(JSONObject taxa) {
+  private static int verwerkStructuur() {
     var lijnen  = 0;
     try (var csvBestand  =
           new CsvBestand.Builder()
@@ -363,10 +539,7 @@ public class IocData extends Batchjob {
       }
 
       nieuweOrde();
-      taxa.put(NatuurTools.KEY_RANG, NatuurConstants.RANG_KLASSE);
-      taxa.put(NatuurTools.KEY_LATIJN, NatuurConstants.LAT_VOGELS);
-      taxa.put(NatuurTools.KEY_SUBRANGEN, ordes);
-    } catch (BestandException | ParseException e) {
+    } catch (BestandException e) {
       DoosUtils.foutNaarScherm(String.format("%s: %s",
               paramBundle.getBestand(NatuurTools.PAR_IOCSTRUCTUUR),
                                              e.getLocalizedMessage()));
@@ -376,7 +549,7 @@ public class IocData extends Batchjob {
   }
 
   private static void verwerkStructuurLijn(String[] veld)
-      throws ParseException {
+      throws BestandException {
     // Nieuwe Orde
     if (DoosUtils.isNotBlankOrNull(veld[0])) {
       nieuweOrde();
@@ -432,7 +605,7 @@ public class IocData extends Batchjob {
     }
 
     if (DoosUtils.isNotBlankOrNull(veld[5])) {
-      ondersoort.clear();
+      var ondersoort  = new JSONObject();
       addRang(NatuurConstants.RANG_ONDERSOORT);
       ondersoort.put(NatuurTools.KEY_SEQ,
                      getVolgnummer(NatuurConstants.RANG_ONDERSOORT));
@@ -442,7 +615,59 @@ public class IocData extends Batchjob {
                                                       + veld[5]));
       ondersoort.put(NatuurTools.KEY_UITGESTORVEN,
                      NatuurUtils.isUitgestorven(veld[5]));
-      ondersoorten.add(parser.parse(ondersoort.toString()));
+      ondersoorten.add(ondersoort);
+    }
+  }
+
+  /**
+   * Wacht tot alle namen gelezen zijn en zet ze bij de soorten die zonder
+   * namen afgesloten werden.
+   */
+  private static void wachtOpNamen() {
+    try {
+      namenGelezen.join();
+    } catch (CompletionException e) {
+      DoosUtils.foutNaarScherm(String.format("%s: %s",
+              paramBundle.getBestand(NatuurTools.PAR_IOCNAMEN),
+                                             e.getCause()
+                                              .getLocalizedMessage()));
     }
+
+    zonderNamen.forEach(IocData::zetNamen);
+    zonderNamen.clear();
   }
+
+  private static void zetNamen(JSONObject soort) {
+    if (null == namentabel) {
+      return;
+    }
+
+    var namen = namentabel.getNamen((String) soort.get(NatuurTools.KEY_LATIJN));
+    if (null != namen) {
+      soort.put(NatuurTools.KEY_NAMEN, namen);
+    }
+  }
+
+  /**
+   * Zet de namen bij de soorten van de orde die geschreven wordt. Er wordt
+   * enkel gewacht tot de namen van deze soorten gelezen zijn en niet op het
+   * hele namenbestand. Het lezen van beide bestanden overlapt zo ook bij het
+   * schrijven per orde, zolang het namenbestand de soorten ongeveer in de
+   * volgorde van de structuur heeft.
+   */
+  private static void zetNamenVanOrde() {
+    try {
+      for (var soort : zonderNamen) {
+        var namen =
+            namentabel.wachtOpNamen((String) soort.get(NatuurTools.KEY_LATIJN));
+        if (null != namen) {
+          soort.put(NatuurTools.KEY_NAMEN, namen);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    zonderNamen.clear();
+  }
+
 }
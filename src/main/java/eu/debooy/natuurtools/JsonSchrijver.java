@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.exception.BestandException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+
+/**
+ * Schrijft een JSONObject waarvan 1 lijst, de subrangen, element per element
+ * wordt doorgegeven. Een element kan zelf ook weer geopend worden zodat een
+ * boom diepte eerst geschreven kan worden. Enkel het element dat geschreven
+ * wordt en de open objecten moeten in het geheugen zitten.
+ *
+ * Een element kan ook apart, bijvoorbeeld in een andere thread, naar een
+ * Writer geschreven worden en daarna als fragment in de lijst gezet worden.
+ *
+ * Met inspringen is de uitvoer gelijk aan die van NatuurTools.writeJson.
+ * Zonder inspringen is de uitvoer gelijk aan die van toJSONString.
+ *
+ * @author Marco de Booij
+ */
+public class JsonSchrijver implements AutoCloseable {
+  protected static final  String  GZ        = ".gz";
+  protected static final  String  INSPRING  = "  ";
+
+  private static final  int BUFFER  = 65536;
+
+  private final int           basis;
+  private final boolean       inspringen;
+  private final Deque<Niveau> niveaus   = new ArrayDeque<>();
+  private final Writer        uitvoer;
+
+  private static class Niveau {
+    private final int             diepte;
+    private final List<Object[]>  staart  = new ArrayList<>();
+
+    private boolean eerste  = true;
+
+    Niveau(int diepte) {
+      this.diepte = diepte;
+    }
+  }
+
+  /**
+   * @param bestand     Het uitvoerbestand.
+   * @param charset     De characterset van de uitvoer.
+   * @param inspringen  Moet de uitvoer ingesprongen worden?
+   * @param gzip        Moet de uitvoer gecomprimeerd worden? Het bestand
+   *                    krijgt dan de extensie .gz erbij.
+   */
+  public JsonSchrijver(String bestand, String charset, boolean inspringen,
+                       boolean gzip) throws BestandException {
+    this.basis      = 0;
+    this.inspringen = inspringen;
+
+    try {
+      OutputStream  stroom;
+      if (gzip) {
+        stroom  = new GZIPOutputStream(
+                      Files.newOutputStream(
+                          Paths.get(bestand.endsWith(GZ) ? bestand
+                                                         : bestand + GZ)),
+                      BUFFER);
+      } else {
+        stroom  = Files.newOutputStream(Paths.get(bestand));
+      }
+      uitvoer = new BufferedWriter(
+                    new OutputStreamWriter(stroom, Charset.forName(charset)),
+                    BUFFER);
+    } catch (IOException e) {
+      throw new BestandException(e);
+    }
+  }
+
+  /**
+   * Schrijft 1 element, zonder scheiding ervoor, als fragment voor een lijst
+   * van een andere JsonSchrijver.
+   *
+   * @param uitvoer     De Writer voor het fragment.
+   * @param inspringen  Moet de uitvoer ingesprongen worden?
+   * @param diepte      De diepte van het element in de andere JsonSchrijver.
+   */
+  public JsonSchrijver(Writer uitvoer, boolean inspringen, int diepte) {
+    this.basis      = diepte;
+    this.inspringen = inspringen;
+    this.uitvoer    = uitvoer;
+  }
+
+  /**
+   * Schrijft het begin van het object tot en met de opening van de lijst. De
+   * sleutels na de lijst worden bij de sluit geschreven.
+   *
+   * @param kop     Het object met, onder de sleutel, een (lege) lijst.
+   * @param sleutel De sleutel van de lijst.
+   */
+  public void begin(JSONObject kop, String sleutel) throws BestandException {
+    try {
+      open(kop, sleutel, 0);
+    } catch (IOException e) {
+      throw new BestandException(e);
+    }
+  }
+
+  @Override
+  public void close() throws BestandException {
+    try {
+      uitvoer.close();
+    } catch (IOException e) {
+      throw new BestandException(e);
+    }
+  }
+
+  private void nieuweLijn(int niveau) throws IOException {
+    if (!inspringen) {
+      return;
+    }
+
+    uitvoer.write("\n");
+    for (var i = 0; i < niveau; i++) {
+      uitvoer.write(INSPRING);
+    }
+  }
+
+  private void open(JSONObject kop, String sleutel, int diepte)
+      throws IOException {
+    var niveau  = new Niveau(diepte);
+    var aantal  = 0;
+    var lijst   = false;
+    uitvoer.write("{");
+    for (var entry : ((Map<?, ?>) kop).entrySet()) {
+      if (lijst) {
+        niveau.staart.add(new Object[] {entry.getKey(), entry.getValue()});
+        continue;
+      }
+      if (aantal > 0) {
+        uitvoer.write(",");
+      }
+      aantal++;
+      nieuweLijn(diepte + 1);
+      schrijfSleutel(entry.getKey());
+      if (sleutel.equals(entry.getKey())) {
+        uitvoer.write("[");
+        lijst = true;
+      } else {
+        schrijfWaarde(entry.getValue(), diepte + 1);
+      }
+    }
+    niveaus.push(niveau);
+  }
+
+  /**
+   * Opent een element van de lijst. Zijn lijst wordt, element per element,
+   * met schrijf en open gevuld en met sluitElement afgesloten.
+   *
+   * @param kop     Het element met, onder de sleutel, een (lege) lijst.
+   * @param sleutel De sleutel van de lijst.
+   */
+  public void openElement(JSONObject kop, String sleutel)
+      throws BestandException {
+    try {
+      var diepte  = volgendElement();
+      open(kop, sleutel, diepte);
+    } catch (IOException e) {
+      throw new BestandException(e);
+    }
+  }
+
+  /**
+   * Schrijft een afgewerkt element van de lijst.
+   */
+  public void schrijf(JSONObject element) throws BestandException {
+    try {
+      var diepte  = volgendElement();
+      schrijfWaarde(element, diepte);
+    } catch (IOException e) {
+      throw new BestandException(e);
+    }
+  }
+
+  /**
+   * Schrijft een element dat door een fragment JsonSchrijver, met dezelfde
+   * inspringen, geschreven werd.
+   */
+  public void schrijfFragment(String fragment) throws BestandException {
+    try {
+      volgendElement();
+      uitvoer.write(fragment);
+    } catch (IOException e) {
+      throw new BestandException(e);
+    }
+  }
+
+  private void schrijfSleutel(Object sleutel) throws IOException {
+    uitvoer.write("\"");
+    uitvoer.write(JSONValue.escape(String.valueOf(sleutel)));
+    uitvoer.write(inspringen ? "\": " : "\":");
+  }
+
+  private void schrijfWaarde(Object waarde, int niveau) throws IOException {
+    if (waarde instanceof Map) {
+      var map = (Map<?, ?>) waarde;
+      uitvoer.write("{");
+      if (map.isEmpty()) {
+        uitvoer.write("}");
+        return;
+      }
+      var aantal  = 0;
+      for (var entry : map.entrySet()) {
+        if (aantal > 0) {
+          uitvoer.write(",");
+        }
+        aantal++;
+        nieuweLijn(niveau + 1);
+        schrijfSleutel(entry.getKey());
+        schrijfWaarde(entry.getValue(), niveau + 1);
+      }
+      nieuweLijn(niveau);
+      uitvoer.write("}");
+      return;
+    }
+
+    if (waarde instanceof List) {
+      var lijst = (List<?>) waarde;
+      uitvoer.write("[");
+      if (lijst.isEmpty()) {
+        uitvoer.write("]");
+        return;
+      }
+      var aantal  = 0;
+      for (var element : lijst) {
+        if (aantal > 0) {
+          uitvoer.write(",");
+        }
+        aantal++;
+        nieuweLijn(niveau + 1);
+        schrijfWaarde(element, niveau + 1);
+      }
+      nieuweLijn(niveau);
+      uitvoer.write("]");
+      return;
+    }
+
+    uitvoer.write(JSONValue.toJSONString(waarde));
+  }
+
+  /**
+   * Sluit de lijst, schrijft de rest van het object en sluit het bestand.
+   */
+  public void sluit() throws BestandException {
+    try {
+      while (!niveaus.isEmpty()) {
+        sluitNiveau();
+      }
+      if (inspringen) {
+        uitvoer.write("\n");
+      }
+    } catch (IOException e) {
+      throw new BestandException(e);
+    }
+    close();
+  }
+
+  /**
+   * Sluit het laatst geopende element.
+   */
+  public void sluitElement() throws BestandException {
+    try {
+      sluitNiveau();
+    } catch (IOException e) {
+      throw new BestandException(e);
+    }
+  }
+
+  private void sluitNiveau() throws IOException {
+    var niveau  = niveaus.pop();
+    if (!niveau.eerste) {
+      nieuweLijn(niveau.diepte + 1);
+    }
+    uitvoer.write("]");
+    for (var entry : niveau.staart) {
+      uitvoer.write(",");
+      nieuweLijn(niveau.diepte + 1);
+      schrijfSleutel(entry[0]);
+      schrijfWaarde(entry[1], niveau.diepte + 1);
+    }
+    nieuweLijn(niveau.diepte);
+    uitvoer.write("}");
+  }
+
+  private int volgendElement() throws IOException {
+    if (niveaus.isEmpty()) {
+      return basis;
+    }
+
+    var niveau  = niveaus.peek();
+    if (!niveau.eerste) {
+      uitvoer.write(",");
+    }
+    niveau.eerste = false;
+    nieuweLijn(niveau.diepte + 2);
+
+    return niveau.diepte + 2;
+  }
+}
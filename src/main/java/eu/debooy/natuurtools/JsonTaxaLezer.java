@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.exception.BestandException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+
+/**
+ * Leest een taxa JSON-bestand als een stroom. Een taxon wordt aan de
+ * verwerker gegeven zodra zijn 'subrangen' beginnen. De subrangen zelf
+ * worden niet bewaard. De stapel met open taxa is zo groot als de diepte van
+ * de boom.
+ *
+ * Velden die na de 'subrangen' in het bestand staan (zoals de 'seq' bij
+ * bestanden van NatuurTools) worden in een eerste, snelle, doorloop
+ * verzameld. Bij bestanden van NatuurTools is dat 1 entry per taxon met
+ * subrangen. Dat deel van het geheugen groeit dus met het aantal taxa met
+ * subrangen en niet met de diepte van de boom. Het blijft wel veel kleiner
+ * dan het volledige bestand met alle namen.
+ *
+ * @author Marco de Booij
+ */
+public class JsonTaxaLezer<T> implements ContentHandler {
+  private final Map<String, JSONObject> achteraf  = new HashMap<>();
+  private final Deque<String>           sleutels  = new ArrayDeque<>();
+  private final Deque<Object>           stapel    = new ArrayDeque<>();
+  private final Verwerker<T>            verwerker;
+
+  private String  latijnsenaam;
+  private int     overslaan;
+  private boolean overslaanVolgende;
+  private boolean voorbereiding;
+
+  public interface Verwerker<T> {
+    /**
+     * Verwerk het taxon. De ouder is null voor de 'root' van het bestand.
+     * Met null als resultaat worden de subrangen overgeslagen.
+     */
+    T verwerk(T ouder, JSONObject taxon);
+  }
+
+  private class Knoop {
+    private final JSONObject  extra   = new JSONObject();
+    private final Knoop       ouder;
+    private final JSONObject  velden  = new JSONObject();
+
+    private boolean naSubrangen = false;
+    private String  sleutel;
+    private T       taxon;
+    private boolean verwerkt    = false;
+
+    Knoop(Knoop ouder) {
+      this.ouder  = ouder;
+    }
+  }
+
+  private class Stroom {
+    private final Knoop knoop;
+
+    Stroom(Knoop knoop) {
+      this.knoop  = knoop;
+    }
+  }
+
+  public JsonTaxaLezer(Verwerker<T> verwerker) {
+    this.verwerker  = verwerker;
+  }
+
+  @Override
+  public boolean endArray() {
+    if (overslaan > 0) {
+      overslaan--;
+      return true;
+    }
+
+    var element = stapel.pop();
+    if (element instanceof JSONArray) {
+      voegToe(element);
+    }
+
+    return true;
+  }
+
+  @Override
+  public void endJSON() {
+    // Niets te doen.
+  }
+
+  @Override
+  public boolean endObject() {
+    if (overslaan > 0) {
+      overslaan--;
+      return true;
+    }
+
+    var element = stapel.pop();
+    if (element instanceof JSONObject) {
+      voegToe(element);
+      return true;
+    }
+
+    var knoop = (Knoop) element;
+    if (null == knoop.ouder) {
+      latijnsenaam  = getLatijnsenaam(knoop.velden);
+    }
+
+    if (voorbereiding) {
+      if (!knoop.extra.isEmpty()) {
+        achteraf.put(getLatijnsenaam(knoop.velden), knoop.extra);
+      }
+      return true;
+    }
+
+    if (!knoop.verwerkt) {
+      // Een taxon zonder, of met gebufferde, subrangen.
+      verwerkInGeheugen(null == knoop.ouder ? null : knoop.ouder.taxon,
+                        knoop.velden);
+    }
+
+    return true;
+  }
+
+  @Override
+  public boolean endObjectEntry() {
+    if (overslaan > 0) {
+      return true;
+    }
+
+    var element = stapel.peek();
+    if (element instanceof Knoop) {
+      ((Knoop) element).sleutel = null;
+    } else {
+      sleutels.pop();
+    }
+
+    return true;
+  }
+
+  public String getLatijnsenaam() {
+    return latijnsenaam;
+  }
+
+  private static String getLatijnsenaam(JSONObject velden) {
+    var latijn  = velden.get(NatuurTools.KEY_LATIJN);
+
+    return null == latijn ? "" : latijn.toString();
+  }
+
+  private boolean isCompleet(Knoop knoop) {
+    return knoop.velden.containsKey(NatuurTools.KEY_LATIJN)
+        && knoop.velden.containsKey(NatuurTools.KEY_RANG)
+        && (null == knoop.ouder
+            || knoop.velden.containsKey(NatuurTools.KEY_SEQ));
+  }
+
+  public void lees(String bestand, String charset) throws BestandException {
+    voorbereiding = true;
+    parse(bestand, charset);
+    voorbereiding = false;
+    parse(bestand, charset);
+    achteraf.clear();
+  }
+
+  private void parse(String bestand, String charset) throws BestandException {
+    overslaan         = 0;
+    overslaanVolgende = false;
+    sleutels.clear();
+    stapel.clear();
+
+    try (var invoer = Files.newBufferedReader(Paths.get(bestand),
+                                              Charset.forName(charset))) {
+      new JSONParser().parse(invoer, this);
+    } catch (IOException | ParseException e) {
+      throw new BestandException(e);
+    }
+  }
+
+  @Override
+  public boolean primitive(Object waarde) {
+    if (overslaan == 0) {
+      voegToe(waarde);
+    }
+
+    return true;
+  }
+
+  @Override
+  public boolean startArray() {
+    if (overslaan > 0) {
+      overslaan++;
+      return true;
+    }
+
+    if (overslaanVolgende) {
+      overslaanVolgende = false;
+      overslaan         = 1;
+      return true;
+    }
+
+    var element = stapel.peek();
+    if (element instanceof Knoop
+        && NatuurTools.KEY_SUBRANGEN.equals(((Knoop) element).sleutel)
+        && (voorbereiding || ((Knoop) element).verwerkt)) {
+      stapel.push(new Stroom((Knoop) element));
+    } else {
+      stapel.push(new JSONArray());
+    }
+
+    return true;
+  }
+
+  @Override
+  public void startJSON() {
+    latijnsenaam  = null;
+  }
+
+  @Override
+  public boolean startObject() {
+    if (overslaan > 0) {
+      overslaan++;
+      return true;
+    }
+
+    var element = stapel.peek();
+    if (null == element) {
+      stapel.push(new Knoop(null));
+    } else if (element instanceof Stroom) {
+      stapel.push(new Knoop(((Stroom) element).knoop));
+    } else {
+      stapel.push(new JSONObject());
+    }
+
+    return true;
+  }
+
+  @Override
+  public boolean startObjectEntry(String sleutel) {
+    if (overslaan > 0) {
+      return true;
+    }
+
+    var element = stapel.peek();
+    if (!(element instanceof Knoop)) {
+      sleutels.push(sleutel);
+      return true;
+    }
+
+    var knoop     = (Knoop) element;
+    knoop.sleutel = sleutel;
+    if (!NatuurTools.KEY_SUBRANGEN.equals(sleutel)) {
+      return true;
+    }
+
+    knoop.naSubrangen = true;
+    if (voorbereiding) {
+      return true;
+    }
+
+    var extra = achteraf.get(getLatijnsenaam(knoop.velden));
+    if (null != extra) {
+      knoop.velden.putAll(extra);
+    }
+
+    // Zonder de nodige velden worden de subrangen in het geheugen gelezen.
+    if (isCompleet(knoop)) {
+      knoop.taxon       =
+          verwerker.verwerk(null == knoop.ouder ? null : knoop.ouder.taxon,
+                            knoop.velden);
+      knoop.verwerkt    = true;
+      overslaanVolgende = (null == knoop.taxon);
+    }
+
+    return true;
+  }
+
+  private void verwerkInGeheugen(T ouder, JSONObject json) {
+    var taxon = verwerker.verwerk(ouder, json);
+    if (null == taxon || !json.containsKey(NatuurTools.KEY_SUBRANGEN)) {
+      return;
+    }
+
+    for (var subrang : (JSONArray) json.get(NatuurTools.KEY_SUBRANGEN)) {
+      verwerkInGeheugen(taxon, (JSONObject) subrang);
+    }
+  }
+
+  private void voegToe(Object waarde) {
+    var element = stapel.peek();
+    if (element instanceof Knoop) {
+      var knoop = (Knoop) element;
+      if (knoop.naSubrangen
+          && !NatuurTools.KEY_SUBRANGEN.equals(knoop.sleutel)) {
+        knoop.extra.put(knoop.sleutel, waarde);
+      }
+      knoop.velden.put(knoop.sleutel, waarde);
+    } else if (element instanceof JSONObject) {
+      ((JSONObject) element).put(sleutels.peek(), waarde);
+    } else if (element instanceof JSONArray) {
+      ((JSONArray) element).add(waarde);
+    }
+  }
+}
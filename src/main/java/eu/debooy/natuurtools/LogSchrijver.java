@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.DoosUtils;
+import eu.debooy.doosutils.exception.BestandException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Schrijft regels, in een eigen thread, naar een logbestand en/of het scherm.
+ * De wachtrij is begrensd zodat een trage uitvoer de verwerking afremt in
+ * plaats van het geheugen te vullen.
+ *
+ * Regels die altijd op het scherm moeten komen gaan ook via de wachtrij.
+ * Zo blijven ze in de volgorde van de verwerking.
+ *
+ * @author Marco de Booij
+ */
+public class LogSchrijver implements AutoCloseable {
+  private static final  int   BUFFER    = 65536;
+  private static final  int   WACHTRIJ  = 10000;
+  private static final  Regel EINDE     = new Regel(null, false, false);
+
+  private final BufferedWriter        log;
+  private final boolean               scherm;
+  private final Thread                schrijver;
+  private final BlockingQueue<Regel>  wachtrij  =
+      new ArrayBlockingQueue<>(WACHTRIJ);
+
+  private IOException fout  = null;
+
+  private static class Regel {
+    private final boolean altijd;
+    private final boolean isFout;
+    private final String  tekst;
+
+    Regel(String tekst, boolean isFout, boolean altijd) {
+      this.altijd = altijd;
+      this.isFout = isFout;
+      this.tekst  = tekst;
+    }
+  }
+
+  /**
+   * @param bestand Het logbestand of null zonder logbestand.
+   * @param charset De characterset van het logbestand.
+   * @param scherm  Moeten de regels ook op het scherm?
+   */
+  public LogSchrijver(String bestand, String charset, boolean scherm)
+      throws BestandException {
+    if (null == bestand) {
+      log = null;
+    } else {
+      try {
+        log = new BufferedWriter(
+                  new OutputStreamWriter(
+                      Files.newOutputStream(Paths.get(bestand)),
+                      Charset.forName(charset)), BUFFER);
+      } catch (IOException e) {
+        throw new BestandException(e);
+      }
+    }
+
+    this.scherm = scherm;
+    schrijver   = new Thread(this::verwerk, "LogSchrijver");
+    schrijver.setDaemon(true);
+    schrijver.start();
+  }
+
+  @Override
+  public void close() throws BestandException {
+    zetInWachtrij(EINDE);
+    try {
+      schrijver.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    try {
+      if (null != log) {
+        log.close();
+      }
+    } catch (IOException e) {
+      fout  = null == fout ? e : fout;
+    }
+
+    if (null != fout) {
+      throw new BestandException(fout);
+    }
+  }
+
+  public void fout(String regel) {
+    zetInWachtrij(new Regel(regel, true, false));
+  }
+
+  public void schrijf(String regel) {
+    zetInWachtrij(new Regel(regel, false, false));
+  }
+
+  /**
+   * Schrijft de regel ook op het scherm als de andere regels daar niet komen.
+   */
+  public void toon(String regel) {
+    zetInWachtrij(new Regel(regel, false, true));
+  }
+
+  /**
+   * Schrijft de fout ook op het scherm als de andere regels daar niet komen.
+   */
+  public void toonFout(String regel) {
+    zetInWachtrij(new Regel(regel, true, true));
+  }
+
+  private void verwerk() {
+    try {
+      var regel = wachtrij.take();
+      while (EINDE != regel) {
+        verwerk(regel);
+        regel = wachtrij.take();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void verwerk(Regel regel) {
+    if (null != log && null == fout) {
+      try {
+        log.write(regel.tekst);
+        log.newLine();
+      } catch (IOException e) {
+        // De verwerking gaat door. De fout komt bij de close.
+        fout  = e;
+      }
+    }
+
+    if (!scherm && !regel.altijd) {
+      return;
+    }
+
+    if (regel.isFout) {
+      DoosUtils.foutNaarScherm(regel.tekst);
+    } else {
+      DoosUtils.naarScherm(regel.tekst);
+    }
+  }
+
+  private void zetInWachtrij(Regel regel) {
+    try {
+      wachtrij.put(regel);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
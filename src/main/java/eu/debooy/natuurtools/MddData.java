@@ -29,6 +29,7 @@ import eu.debooy.natuur.NatuurUtils;
 import eu.debooy.natuur.domain.TaxonDto;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -46,6 +47,8 @@ import org.json.simple.parser.ParseException;
  */
 public class MddData extends Batchjob {
   protected static final  String  ERR_KOLOM = "error.geen.kolom";
+  protected static final  String  SLEUTEL   = "%012d";
+  protected static final  int     SLEUTELS  = 4;
 
   private static final  JSONObject      familie         = new JSONObject();
   private static final  JSONArray       families        = new JSONArray();
@@ -57,6 +60,9 @@ public class MddData extends Batchjob {
   private static final  List<String>    rangen          = new ArrayList<>();
   private static final  ResourceBundle  resourceBundle  =
       ResourceBundle.getBundle("ApplicatieResources", Locale.getDefault());
+  // Volgorde waarin een orde, familie of geslacht voor het eerst voorkomt.
+  private static final  Map<String, Integer>
+                                        sorteervolgorde = new HashMap<>();
   private static final  JSONObject      soort           = new JSONObject();
   private static final  JSONArray       soorten         = new JSONArray();
   private static final  Map<String, Integer>
@@ -65,15 +71,17 @@ public class MddData extends Batchjob {
       new String[] {"family", "genus", "order", "specificEpithet",
                     "mainCommonName", "extinct"};
 
-  private static  Integer   factor        = NatuurConstants.VOLGNUMMERFACTOR;
-  private static  int       kolommen[];
-  private static  Integer   lijnen        = 0;
-  private static  boolean   perRang       = false;
-  private static  Integer   sequence      = 0;
-  private static  String    asmtaal       = "";
-  private static  String    vorigeFamilie = "";
-  private static  String    vorigeOrde    = "";
-  private static  String    vorigGeslacht = "";
+  private static  Integer       factor        =
+      NatuurConstants.VOLGNUMMERFACTOR;
+  private static  int           kolommen[];
+  private static  Integer       lijnen        = 0;
+  private static  boolean       perRang       = false;
+  private static  JsonSchrijver schrijver     = null;
+  private static  Integer       sequence      = 0;
+  private static  String        asmtaal       = "";
+  private static  String        vorigeFamilie = "";
+  private static  String        vorigeOrde    = "";
+  private static  String        vorigGeslacht = "";
 
   protected MddData() {}
 
@@ -169,10 +177,17 @@ public class MddData extends Batchjob {
 
     init();
     var taxa    = new JSONObject();
-    verwerkMddbestand(taxa);
+    taxa.put(NatuurTools.KEY_RANG, NatuurConstants.RANG_KLASSE);
+    taxa.put(NatuurTools.KEY_LATIJN, NatuurConstants.LAT_ZOOGDIEREN);
+    taxa.put(NatuurTools.KEY_SUBRANGEN, ordes);
+    taxa.put(NatuurTools.KEY_SEQ,
+             paramBundle.getInteger(NatuurTools.PAR_KLASSEVOLGNUMMER));
+    if (!openSchrijver(taxa)) {
+      return;
+    }
+    verwerkMddbestand();
 
-    NatuurTools.writeJson(paramBundle.getBestand(NatuurTools.PAR_JSON),
-                          taxa, paramBundle.getString(PAR_CHARSETUIT));
+    schrijfTaxa(taxa);
 
     DoosUtils.naarScherm();
     DoosUtils.naarScherm(
@@ -223,7 +238,8 @@ public class MddData extends Batchjob {
     }
   }
 
-  private static void nieuwGeslacht(MddTaxon mddTaxon) throws ParseException {
+  private static void nieuwGeslacht(MddTaxon mddTaxon)
+      throws BestandException, ParseException {
     if (!geslacht.isEmpty()) {
       if (!soorten.isEmpty()) {
         geslacht.put(NatuurTools.KEY_SUBRANGEN,
@@ -250,7 +266,8 @@ public class MddData extends Batchjob {
     geslacht.put(NatuurTools.KEY_LATIJN, vorigGeslacht);
   }
 
-  private static void nieuweFamilie(MddTaxon mddTaxon) throws ParseException {
+  private static void nieuweFamilie(MddTaxon mddTaxon)
+      throws BestandException, ParseException {
     if (!familie.isEmpty()) {
       if (!geslachten.isEmpty()) {
         familie.put(NatuurTools.KEY_SUBRANGEN,
@@ -277,13 +294,18 @@ public class MddData extends Batchjob {
     familie.put(NatuurTools.KEY_LATIJN, vorigeFamilie);
   }
 
-  private static void nieuweOrde(MddTaxon mddTaxon) throws ParseException {
+  private static void nieuweOrde(MddTaxon mddTaxon)
+      throws BestandException, ParseException {
     if (!orde.isEmpty()) {
       if (!families.isEmpty()) {
         orde.put(NatuurTools.KEY_SUBRANGEN, parser.parse(families.toString()));
         families.clear();
       }
-      ordes.add(parser.parse(orde.toString()));
+      if (null == schrijver) {
+        ordes.add(parser.parse(orde.toString()));
+      } else {
+        schrijver.schrijf(orde);
+      }
       orde.clear();
     }
 
@@ -298,7 +320,8 @@ public class MddData extends Batchjob {
     orde.put(NatuurTools.KEY_LATIJN, vorigeOrde);
   }
 
-  private static void nieuweSoort(MddTaxon mddTaxon) throws ParseException {
+  private static void nieuweSoort(MddTaxon mddTaxon)
+      throws BestandException, ParseException {
     if (!soort.isEmpty()) {
       soorten.add(parser.parse(soort.toString()));
       soort.clear();
@@ -325,6 +348,47 @@ public class MddData extends Batchjob {
     soort.put(NatuurTools.KEY_NAMEN, namen);
   }
 
+  private static boolean openSchrijver(JSONObject taxa) {
+    schrijver = null;
+    if (!paramBundle.getBoolean(NatuurTools.PAR_STROOM)
+        && !paramBundle.getBoolean(NatuurTools.PAR_COMPACT)
+        && !paramBundle.getBoolean(NatuurTools.PAR_GZIP)) {
+      return true;
+    }
+
+    try {
+      schrijver =
+          new JsonSchrijver(paramBundle.getBestand(NatuurTools.PAR_JSON),
+                            paramBundle.getString(PAR_CHARSETUIT),
+                            !paramBundle.getBoolean(NatuurTools.PAR_COMPACT),
+                            paramBundle.getBoolean(NatuurTools.PAR_GZIP));
+      schrijver.begin(taxa, NatuurTools.KEY_SUBRANGEN);
+    } catch (BestandException e) {
+      DoosUtils.foutNaarScherm(String.format("%s: %s",
+              paramBundle.getBestand(NatuurTools.PAR_JSON),
+                                             e.getLocalizedMessage()));
+      return false;
+    }
+
+    return true;
+  }
+
+  private static void schrijfTaxa(JSONObject taxa) {
+    if (null == schrijver) {
+      NatuurTools.writeJson(paramBundle.getBestand(NatuurTools.PAR_JSON),
+                            taxa, paramBundle.getString(PAR_CHARSETUIT));
+      return;
+    }
+
+    try {
+      schrijver.sluit();
+    } catch (BestandException e) {
+      DoosUtils.foutNaarScherm(String.format("%s: %s",
+              paramBundle.getBestand(NatuurTools.PAR_JSON),
+                                             e.getLocalizedMessage()));
+    }
+  }
+
   private static void setRangen() {
     for (String rang : new String[] {NatuurConstants.RANG_ORDE,
                                      NatuurConstants.RANG_FAMILIE,
@@ -335,6 +399,28 @@ public class MddData extends Batchjob {
     }
   }
 
+  private static String[] sorteerRij(String[] taxon, int nummer) {
+    var rij = new String[SLEUTELS + taxon.length];
+    rij[0]  = sorteerSleutel(NatuurConstants.RANG_ORDE, taxon[kolommen[2]]);
+    rij[1]  = sorteerSleutel(NatuurConstants.RANG_FAMILIE, taxon[kolommen[0]]);
+    rij[2]  = sorteerSleutel(NatuurConstants.RANG_GESLACHT,
+                             taxon[kolommen[1]]);
+    rij[3]  = String.format(SLEUTEL, nummer);
+    System.arraycopy(taxon, 0, rij, SLEUTELS, taxon.length);
+
+    return rij;
+  }
+
+  private static String sorteerSleutel(String rang, String latijnsenaam) {
+    var sleutel =
+        rang + ":" + NatuurUtils.formatLatijnsenaam(
+                        DoosUtils.nullToEmpty(latijnsenaam));
+
+    return String.format(SLEUTEL,
+                         sorteervolgorde.computeIfAbsent(
+                             sleutel, k -> sorteervolgorde.size()));
+  }
+
   private static void verwerkHeader(String[] header) throws BestandException {
     kolommen  = new int[velden.length];
 
@@ -348,26 +434,38 @@ public class MddData extends Batchjob {
     }
   }
 
-  private static void verwerkMddbestand(JSONObject taxa) {
+  private static void verwerkMddbestand() {
+    sorteervolgorde.clear();
     try (var csvBestand  =
           new CsvBestand.Builder()
                         .setBestand(
                             paramBundle.getBestand(NatuurTools.PAR_MDDBESTAND))
                         .setCharset(paramBundle.getString(PAR_CHARSETIN))
                         .setHeader(true)
-                        .build()) {
+                        .build();
+        var sortering   =
+          paramBundle.getBoolean(NatuurTools.PAR_SORTEER)
+              ? new ExterneSortering(
+                    paramBundle.getInteger(NatuurTools.PAR_SORTEERGROOTTE),
+                    SLEUTELS)
+              : null) {
       verwerkHeader(csvBestand.getKolomNamen());
 
+      var rij = 0;
       while (csvBestand.hasNext()) {
-        verwerkTaxon(csvBestand.next());
+        if (null == sortering) {
+          verwerkTaxon(csvBestand.next());
+        } else {
+          sortering.voegToe(sorteerRij(csvBestand.next(), rij++));
+        }
+      }
+
+      if (null != sortering) {
+        sortering.verwerk(taxon ->
+            verwerkTaxon(Arrays.copyOfRange(taxon, SLEUTELS, taxon.length)));
       }
 
       nieuweSoort(new MddTaxon());
-      taxa.put(NatuurTools.KEY_RANG, NatuurConstants.RANG_KLASSE);
-      taxa.put(NatuurTools.KEY_LATIJN, NatuurConstants.LAT_ZOOGDIEREN);
-      taxa.put(NatuurTools.KEY_SUBRANGEN, ordes);
-      taxa.put(NatuurTools.KEY_SEQ,
-               paramBundle.getInteger(NatuurTools.PAR_KLASSEVOLGNUMMER));
     } catch (BestandException | ParseException e) {
       DoosUtils.foutNaarScherm(String.format("%s: %s",
               paramBundle.getBestand(NatuurTools.PAR_IOCNAMEN),
@@ -387,7 +485,7 @@ public class MddData extends Batchjob {
 
     try {
       nieuweSoort(mddTaxon);
-    } catch (ParseException e) {
+    } catch (BestandException | ParseException e) {
       DoosUtils.foutNaarScherm(String.format("%s %s  - %s",
                                              mddTaxon.getGeslacht(),
                                              mddTaxon.getSoort(),
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.DoosUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.simple.JSONObject;
+
+
+/**
+ * De namen van de soorten per taal als een tabel. De taal staat 1 keer per
+ * kolom en elke naam 1 keer in de pool. Per soort is er een rij met, per
+ * kolom, de index van de naam in de pool of -1.
+ *
+ * Het JSONObject met de namen van een soort wordt pas bij het opvragen
+ * gemaakt. De talen worden, net als vroeger, kolom per kolom in een nieuw
+ * JSONObject gezet.
+ *
+ * De tabel mag gevuld worden terwijl een andere thread de namen opvraagt. Met
+ * wachtOpNamen wordt gewacht tot de rij van een soort er is of tot de tabel
+ * gesloten is.
+ *
+ * @author Marco de Booij
+ */
+public class Namentabel {
+  private static final  int GEEN  = -1;
+  private static final  int RIJEN = 1024;
+
+  private final Map<String, Integer>  index     = new HashMap<>();
+  private final int                   kolommen;
+  private final List<String>          pool      = new ArrayList<>();
+  private final Map<String, Integer>  poolindex = new HashMap<>();
+  private final String[]              talen;
+
+  private boolean gesloten  = false;
+  private int     rijen     = 0;
+  private int[]   tabel;
+
+  /**
+   * @param taalkolom De taal van elke kolom. Een lege taal wordt overgeslagen.
+   */
+  public Namentabel(String[] taalkolom) {
+    talen     = Arrays.stream(taalkolom)
+                      .map(taal -> DoosUtils.isBlankOrNull(taal) ? null : taal)
+                      .toArray(String[]::new);
+    kolommen  = talen.length;
+    tabel     = new int[RIJEN * Math.max(kolommen, 1)];
+  }
+
+  public synchronized int getAantal() {
+    return index.size();
+  }
+
+  /**
+   * Geeft een nieuw JSONObject met de namen van de soort of null als de soort
+   * niet in de tabel staat.
+   */
+  public synchronized JSONObject getNamen(String latijnsenaam) {
+    var rij = index.get(latijnsenaam);
+    if (null == rij) {
+      return null;
+    }
+
+    var namen = new JSONObject();
+    var start = rij * kolommen;
+    for (var i = 0; i < kolommen; i++) {
+      if (tabel[start + i] != GEEN) {
+        namen.put(talen[i], pool.get(tabel[start + i]));
+      }
+    }
+
+    return namen;
+  }
+
+  private int naarPool(String naam) {
+    var id  = poolindex.get(naam);
+    if (null == id) {
+      id  = pool.size();
+      pool.add(naam);
+      poolindex.put(naam, id);
+    }
+
+    return id;
+  }
+
+  /**
+   * Er komen geen rijen meer bij.
+   */
+  public synchronized void sluit() {
+    gesloten  = true;
+    notifyAll();
+  }
+
+  /**
+   * Zet de namen van een soort in de tabel.
+   *
+   * @param latijnsenaam  De latijnse naam van de soort.
+   * @param namen         De naam per kolom. Een lege naam wordt overgeslagen.
+   */
+  public synchronized void voegToe(String latijnsenaam,
+                                   String[] namen) {
+    if ((rijen + 1) * kolommen > tabel.length) {
+      tabel = Arrays.copyOf(tabel, rijen * 2 * Math.max(kolommen, 1));
+    }
+
+    var start = rijen * kolommen;
+    for (var i = 0; i < kolommen; i++) {
+      if (null != talen[i] && i < namen.length
+          && DoosUtils.isNotBlankOrNull(namen[i])) {
+        tabel[start + i]  = naarPool(namen[i]);
+      } else {
+        tabel[start + i]  = GEEN;
+      }
+    }
+
+    index.put(latijnsenaam, rijen);
+    rijen++;
+    notifyAll();
+  }
+
+  /**
+   * Wacht tot de soort in de tabel staat of de tabel gesloten is.
+   *
+   * @return  Zoals getNamen.
+   */
+  public synchronized JSONObject wachtOpNamen(String latijnsenaam)
+      throws InterruptedException {
+    while (!gesloten && !index.containsKey(latijnsenaam)) {
+      wait();
+    }
+
+    return getNamen(latijnsenaam);
+  }
+}
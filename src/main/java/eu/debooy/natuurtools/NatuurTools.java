@@ -69,7 +69,9 @@ public class NatuurTools extends Batchjob {
   protected static final  String  MSG_AFWEZIG         = "msg.afwezig";
   protected static final  String  MSG_BESTAANTAL      = "msg.bestaat.al";
   protected static final  String  MSG_BESTAANTNIET    = "msg.bestaat.niet";
+  protected static final  String  MSG_CHECKPOINT      = "msg.checkpoint";
   protected static final  String  MSG_GELEZEN         = "msg.gelezen";
+  protected static final  String  MSG_HASHES          = "msg.hashes";
   protected static final  String  MSG_HERNOEM         = "msg.hernoem";
   protected static final  String  MSG_HERNUMMER       = "msg.hernummer";
   protected static final  String  MSG_HIERARCHIE      = "msg.hierarchie";
@@ -77,6 +79,7 @@ public class NatuurTools extends Batchjob {
   protected static final  String  MSG_METONDERSOORTEN = "msg.metondersoorten";
   protected static final  String  MSG_NIEUW           = "msg.nieuw";
   protected static final  String  MSG_ONBEKEND        = "msg.onbekend";
+  protected static final  String  MSG_PLAN            = "msg.plan";
   protected static final  String  MSG_SKIPSTRUCTUUR   = "msg.skipstructuur";
   protected static final  String  MSG_TALEN           = "msg.talen";
   protected static final  String  MSG_TAXANIEUW       = "msg.taxanieuw";
@@ -89,13 +92,20 @@ public class NatuurTools extends Batchjob {
 
   protected static final  String  PAR_AANMAAK           = "aanmaak";
   protected static final  String  PAR_AUTEUR            = "auteur";
+  protected static final  String  PAR_BATCH             = "batch";
   protected static final  String  PAR_BEHOUD            = "behoud";
+  protected static final  String  PAR_CHECKPOINT        = "checkpoint";
+  protected static final  String  PAR_COMPACT           = "compact";
+  protected static final  String  PAR_CONTEXTGROOTTE    = "contextgrootte";
   protected static final  String  PAR_IOCNAMEN          = "iocnamen";
   protected static final  String  PAR_IOCSTRUCTUUR      = "iocstructuur";
   protected static final  String  PAR_DBURL             = "dburl";
   protected static final  String  PAR_DBUSER            = "dbuser";
   protected static final  String  PAR_FACTOR            = "factor";
+  protected static final  String  PAR_GZIP              = "gzip";
+  protected static final  String  PAR_HASHES            = "hashes";
   protected static final  String  PAR_HERNUMMER         = "hernummer";
+  protected static final  String  PAR_HERVAT            = "hervat";
   protected static final  String  PAR_JSON              = "json";
   protected static final  String  PAR_KLASSEVOLGNUMMER  = "klassevolgnummer";
   protected static final  String  PAR_KLEUR             = "kleur";
@@ -104,13 +114,22 @@ public class NatuurTools extends Batchjob {
   protected static final  String  PAR_METONDERSOORT     = "metondersoort";
   protected static final  String  PAR_PERRANG           = "perrang";
   protected static final  String  PAR_RANGEN            = "rangen";
+  protected static final  String  PAR_SNAPSHOT          = "snapshot";
+  protected static final  String  PAR_SORTEER           = "sorteer";
+  protected static final  String  PAR_SORTEERGROOTTE    = "sorteergrootte";
   protected static final  String  PAR_SUBTITEL          = "subtitel";
   protected static final  String  PAR_STIL              = "stil";
+  protected static final  String  PAR_STROOM            = "stroom";
   protected static final  String  PAR_TALEN             = "talen";
   protected static final  String  PAR_TAXAROOT          = "taxaroot";
   protected static final  String  PAR_TEMPLATE          = "template";
+  protected static final  String  PAR_THREADS           = "threads";
   protected static final  String  PAR_TITEL             = "titel";
+  protected static final  String  PAR_TOEPASSEN         = "toepassen";
+  protected static final  String  PAR_TOTRANG           = "totrang";
+  protected static final  String  PAR_VOORLADEN         = "voorladen";
   protected static final  String  PAR_WACHTWOORD        = "wachtwoord";
+  protected static final  String  PAR_WIJZIGINGEN       = "wijzigingen";
 
   protected static final  String  QRY_RANG  =
       "select r from RangDto r order by r.niveau";
@@ -121,6 +140,7 @@ public class NatuurTools extends Batchjob {
   protected static final  String  TOOL_IOCDATA      = "iocdata";
   protected static final  String  TOOL_JSONCHECK    = "jsoncheck";
   protected static final  String  TOOL_MDDDATA      = "mdddata";
+  protected static final  String  TOOL_SNAPSHOT     = "snapshot";
   protected static final  String  TOOL_TAXAIMPORT   = "taxaimport";
   protected static final  String  TOOL_TAXONOMIE    = "taxonomie";
 
@@ -128,8 +148,8 @@ public class NatuurTools extends Batchjob {
 
   protected static final  List<String>  tools =
       Arrays.asList(TOOL_CSVNAARJSON, TOOL_DBNAARJSON, TOOL_HERNOEM,
-                    TOOL_IOCDATA, TOOL_JSONCHECK, TOOL_MDDDATA, TOOL_TAXAIMPORT,
-                    TOOL_TAXONOMIE);
+                    TOOL_IOCDATA, TOOL_JSONCHECK, TOOL_MDDDATA, TOOL_SNAPSHOT,
+                    TOOL_TAXAIMPORT, TOOL_TAXONOMIE);
 
   protected NatuurTools() {}
 
@@ -187,6 +207,9 @@ public class NatuurTools extends Batchjob {
       case TOOL_MDDDATA:
         MddData.execute(commandoArgs);
         break;
+      case TOOL_SNAPSHOT:
+        Snapshot.execute(commandoArgs);
+        break;
       case TOOL_TAXAIMPORT:
         TaxaImport.execute(commandoArgs);
         break;
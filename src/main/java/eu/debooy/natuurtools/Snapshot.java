@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doos.domain.TaalDto;
+import eu.debooy.doosutils.Batchjob;
+import eu.debooy.doosutils.DoosBanner;
+import eu.debooy.doosutils.DoosUtils;
+import eu.debooy.doosutils.ParameterBundle;
+import eu.debooy.doosutils.percistence.DbConnection;
+import eu.debooy.natuur.domain.RangDto;
+import eu.debooy.natuur.domain.TaxonDto;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import javax.persistence.EntityManager;
+
+
+/**
+ * Schrijft de rangen, de talen en de taxa tot en met een rang naar een
+ * snapshot. Andere tools kunnen daarmee zonder database werken.
+ *
+ * @author Marco de Booij
+ */
+public class Snapshot extends Batchjob {
+  protected static final  String  PAR_RANGEN    = "rangen";
+  protected static final  String  QRY_TALEN     =
+      "select distinct t from TaalDto t left join fetch t.taalnamen";
+  protected static final  String  QRY_TAXA      =
+      "select distinct t from TaxonDto t left join fetch t.taxonnamen "
+          + "where t.rang in :rangen";
+
+  private static final  ResourceBundle  resourceBundle  =
+      ResourceBundle.getBundle("ApplicatieResources", Locale.getDefault());
+
+  private static final  List<String>          rangen  = new ArrayList<>();
+  private static final  Map<String, Integer>  totalen = new HashMap<>();
+
+  protected Snapshot() {}
+
+  public static void execute(String[] args) {
+    setParameterBundle(
+        new ParameterBundle.Builder()
+                           .setArgs(args)
+                           .setBanner(new DoosBanner())
+                           .setBaseName(NatuurTools.TOOL_SNAPSHOT)
+                           .build());
+
+    if (!paramBundle.isValid()) {
+      return;
+    }
+
+    var snapshot  = new Snapshotbestand();
+    try (var dbConn =
+        new DbConnection.Builder()
+              .setDbUser(paramBundle.getString(NatuurTools.PAR_DBUSER))
+              .setDbUrl(paramBundle.getString(NatuurTools.PAR_DBURL))
+              .setWachtwoord(paramBundle.getString(NatuurTools.PAR_WACHTWOORD))
+              .setPersistenceUnitName(NatuurTools.EM_UNITNAME)
+              .build()) {
+      var em  = dbConn.getEntityManager();
+
+      getRangen(em, snapshot);
+      getTalen(em, snapshot);
+      getTaxa(em, snapshot);
+
+      snapshot.schrijf(paramBundle.getBestand(NatuurTools.PAR_SNAPSHOT),
+                       paramBundle.getString(PAR_CHARSETUIT));
+    } catch (Exception e) {
+      DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+    }
+
+    NatuurTools.printRangtotalen(rangen, totalen);
+    DoosUtils.naarScherm();
+    DoosUtils.naarScherm(
+        MessageFormat.format(resourceBundle.getString(NatuurTools.MSG_TALEN),
+                             snapshot.getAantalTalen()));
+    DoosUtils.naarScherm(
+        MessageFormat.format(resourceBundle.getString(NatuurTools.MSG_UITVOER),
+                             paramBundle.getBestand(NatuurTools.PAR_SNAPSHOT)));
+    klaar();
+  }
+
+  private static void getRangen(EntityManager em, Snapshotbestand snapshot) {
+    List<RangDto> ranglijst = em.createQuery(NatuurTools.QRY_RANG)
+                                .getResultList();
+
+    ranglijst.forEach(rang -> {
+      rangen.add(rang.getRang());
+      totalen.put(rang.getRang(), 0);
+      snapshot.addRang(rang.getRang());
+    });
+  }
+
+  private static void getTalen(EntityManager em, Snapshotbestand snapshot) {
+    List<TaalDto> talen = em.createQuery(QRY_TALEN).getResultList();
+
+    talen.forEach(snapshot::addTaal);
+  }
+
+  private static void getTaxa(EntityManager em, Snapshotbestand snapshot) {
+    var totrang = paramBundle.getString(NatuurTools.PAR_TOTRANG);
+    var tot     = rangen.indexOf(totrang);
+    var lijst   = rangen.subList(0, tot < 0 ? rangen.size() : tot + 1);
+
+    List<TaxonDto>  taxa  = em.createQuery(QRY_TAXA)
+                              .setParameter(PAR_RANGEN, lijst)
+                              .getResultList();
+
+    taxa.forEach(taxon -> {
+      totalen.put(taxon.getRang(), totalen.get(taxon.getRang()) + 1);
+      snapshot.addTaxon(taxon);
+    });
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doos.domain.TaalDto;
+import eu.debooy.doosutils.DoosUtils;
+import eu.debooy.doosutils.access.JsonBestand;
+import eu.debooy.doosutils.exception.BestandException;
+import eu.debooy.natuur.domain.TaxonDto;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+
+/**
+ * De rangen, talen en de taxa van de hoogste rangen uit de database. Hiermee
+ * kan een tool werken zonder database.
+ *
+ * @author Marco de Booij
+ */
+public class Snapshotbestand {
+  protected static final  String  KEY_ISO6391 = "iso6391";
+  protected static final  String  KEY_RANGEN  = "rangen";
+  protected static final  String  KEY_TALEN   = "talen";
+
+  private final Map<String, String> iso6392t  = new HashMap<>();
+  private final JSONArray           rangen;
+  private final JSONObject          talen;
+  private final JSONObject          taxa;
+
+  public Snapshotbestand() {
+    rangen  = new JSONArray();
+    talen   = new JSONObject();
+    taxa    = new JSONObject();
+  }
+
+  private Snapshotbestand(JsonBestand jsonBestand) {
+    rangen  = getJson(jsonBestand, KEY_RANGEN, new JSONArray());
+    talen   = getJson(jsonBestand, KEY_TALEN, new JSONObject());
+    taxa    = getJson(jsonBestand, NatuurTools.KEY_TAXA, new JSONObject());
+
+    talen.forEach((taal, json) -> {
+      var iso6391 = ((JSONObject) json).get(KEY_ISO6391);
+      if (null != iso6391) {
+        iso6392t.put(iso6391.toString(), taal.toString());
+      }
+    });
+  }
+
+  public void addRang(String rang) {
+    rangen.add(rang);
+  }
+
+  public void addTaal(TaalDto taalDto) {
+    var json  = new JSONObject();
+    var namen = new JSONObject();
+    if (DoosUtils.isNotBlankOrNull(taalDto.getIso6391())) {
+      json.put(KEY_ISO6391, taalDto.getIso6391());
+      iso6392t.put(taalDto.getIso6391(), taalDto.getIso6392t());
+    }
+    taalDto.getTaalnamen().forEach(taalnaam ->
+        namen.put(taalnaam.getIso6392t(), taalnaam.getNaam()));
+    json.put(NatuurTools.KEY_NAMEN, namen);
+
+    talen.put(taalDto.getIso6392t(), json);
+  }
+
+  public void addTaxon(TaxonDto taxon) {
+    var json  = new JSONObject();
+    var namen = new JSONObject();
+    json.put(NatuurTools.KEY_LATIJN, taxon.getLatijnsenaam());
+    json.put(NatuurTools.KEY_RANG, taxon.getRang());
+    json.put(NatuurTools.KEY_SEQ, taxon.getVolgnummer());
+    json.put(NatuurTools.KEY_UITGESTORVEN, taxon.isUitgestorven());
+    taxon.getTaxonnamen().forEach(naam -> namen.put(naam.getTaal(),
+                                                    naam.getNaam()));
+    json.put(NatuurTools.KEY_NAMEN, namen);
+
+    taxa.put(taxon.getLatijnsenaam(), json);
+  }
+
+  public int getAantalTalen() {
+    return talen.size();
+  }
+
+  public int getAantalTaxa() {
+    return taxa.size();
+  }
+
+  /**
+   * Geeft de ISO-639-2T code van een ISO-639-1 code of null als de taal niet
+   * gekend is.
+   */
+  public String getIso6392t(String iso6391) {
+    return iso6392t.get(iso6391);
+  }
+
+  private static <T> T getJson(JsonBestand jsonBestand, String sleutel,
+                               T standaard) {
+    var json  = jsonBestand.get(sleutel);
+
+    return null == json ? standaard : (T) json;
+  }
+
+  /**
+   * Geeft de rangen volgens hun niveau.
+   */
+  public List<String> getRangen() {
+    List<String>  lijst = new ArrayList<>();
+    rangen.forEach(rang -> lijst.add(rang.toString()));
+
+    return Collections.unmodifiableList(lijst);
+  }
+
+  /**
+   * Geeft een kopie van het taxon, in het formaat van de JSON-bestanden, of
+   * null als het taxon niet in de snapshot staat.
+   */
+  public JSONObject getTaxon(String latijnsenaam) {
+    var json  = (JSONObject) taxa.get(latijnsenaam);
+    if (null == json) {
+      return null;
+    }
+
+    var taxon = new JSONObject();
+    json.forEach(taxon::put);
+    if (json.containsKey(NatuurTools.KEY_NAMEN)) {
+      taxon.put(NatuurTools.KEY_NAMEN,
+                new JSONObject((JSONObject) json.get(NatuurTools.KEY_NAMEN)));
+    }
+
+    return taxon;
+  }
+
+  public static Snapshotbestand lees(String bestand, String charset)
+      throws BestandException {
+    try (var jsonBestand  =
+          new JsonBestand.Builder()
+                         .setBestand(bestand)
+                         .setCharset(charset)
+                         .build()) {
+      return new Snapshotbestand(jsonBestand);
+    }
+  }
+
+  public void schrijf(String bestand, String charset) {
+    var json  = new JSONObject();
+    json.put(KEY_RANGEN, rangen);
+    json.put(KEY_TALEN, talen);
+    json.put(NatuurTools.KEY_TAXA, taxa);
+
+    NatuurTools.writeJson(bestand, json, charset);
+  }
+}
@@ -23,7 +23,6 @@ import eu.debooy.doosutils.DoosUtils;
 import eu.debooy.doosutils.ParameterBundle;
 import eu.debooy.doosutils.access.BestandConstants;
 import eu.debooy.doosutils.access.JsonBestand;
-import eu.debooy.doosutils.access.TekstBestand;
 import eu.debooy.doosutils.components.Message;
 import eu.debooy.doosutils.errorhandling.exception.ObjectNotFoundException;
 import eu.debooy.doosutils.exception.BestandException;
@@ -44,7 +43,13 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.NoResultException;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -57,30 +62,84 @@ public class TaxaImport extends Batchjob {
   private static final  ResourceBundle  resourceBundle  =
       ResourceBundle.getBundle("ApplicatieResources", Locale.getDefault());
 
-  protected static final  Long    ONBEKEND      = -1L;
-  protected static final  String  ERR_STRUCTUUR = "error.structuur";
-  protected static final  String  WORDT         = " -> ";
-
-  protected static final  String  QRY_TALEN =
+  protected static final  Long    ONBEKEND        = -1L;
+  protected static final  String  ERR_CHECKPOINT  = "error.checkpoint";
+  protected static final  String  ERR_COMBINATIE  = "error.combinatie";
+  protected static final  String  ERR_STRUCTUUR   = "error.structuur";
+  protected static final  String  ERR_TIJDELIJK   = "error.tijdelijk";
+  protected static final  String  ERR_VERPLICHT   = "error.verplicht";
+  protected static final  String  WORDT           = " -> ";
+
+  protected static final  String  PAR_IDS       = "ids";
+  protected static final  String  PAR_NAAMTAAL  = "taal";
+  protected static final  String  PAR_TAXONID   = "taxonId";
+  protected static final  String  PAR_WAARDE    = "waarde";
+
+  protected static final  String  QRY_NAMEN             =
+      "select n from TaxonnaamDto n "
+          + "where n.taal = :taal and n.taxonId in :ids";
+  protected static final  String  QRY_TALEN             =
       "select distinct t.taal from natuur.taxonnamen t";
-  protected static final  String  QRY_TAXON =
-      "select t from TaxonDto t where t.taxonId=%d";
-
-  private static final  Map<String, Totalen>  namen     = new HashMap<>();
-  private static final  Map<String, String>   prefix    = new HashMap<>();
-  private static final  List<String>          rangen    = new ArrayList<>();
-  private static final  List<String>          talen     = new ArrayList<>();
-  private static final  Map<String, Totalen>  totalen   = new HashMap<>();
-
-  private static  boolean       aanmaak         = false;
-  private static  EntityManager em;
-  private static  boolean       hernummer       = false;
-  private static  String        iso6392t;
-  private static  TekstBestand  log             = null;
-  private static  boolean       metondersoorten = false;
-  private static  boolean       readonly        = false;
-  private static  boolean       stil            = false;
-  private static  boolean       talenParameter  = false;
+  protected static final  String  QRY_UPD_PARENT        =
+      "update TaxonDto t set t.parentId = :waarde where t.taxonId in :ids";
+  protected static final  String  QRY_UPD_UITGESTORVEN  =
+      "update TaxonDto t set t.uitgestorven = :waarde "
+          + "where t.taxonId in :ids";
+  protected static final  String  QRY_UPD_VOLGNUMMER    =
+      "update TaxonDto t set t.volgnummer = :waarde where t.taxonId in :ids";
+
+  private static final  Map<String, Totalen>  namen       = new HashMap<>();
+  private static final  Map<String, Integer>  niveaus     = new HashMap<>();
+  private static final  Map<String, String>   prefix      = new HashMap<>();
+  private static final  List<String>          rangen      = new ArrayList<>();
+  private static final  List<String>          talen       = new ArrayList<>();
+  private static final  Map<String, Totalen>  totalen     = new HashMap<>();
+  private static final  Map<Long, long[]>     voorouders  =
+      new ConcurrentHashMap<>();
+
+  private static final  ThreadLocal<Werkruimte> werkruimte  =
+      new ThreadLocal<>();
+
+  private static  boolean         aanmaak         = false;
+  private static  Integer         batch           = 1;
+  private static  Checkpoint      checkpoint      = null;
+  private static  Integer         contextgrootte  = 1000;
+  private static  Deelboomhashes  hashes          = null;
+  private static  boolean         hernummer       = false;
+  private static  boolean         hervat          = false;
+  private static  String          iso6392t;
+  private static  LogSchrijver    log             = null;
+  private static  String          lopend          = null;
+  private static  boolean         metondersoorten = false;
+  private static  boolean         readonly        = false;
+  private static  TaxonDto        root            = null;
+  private static  boolean         stil            = false;
+  private static  boolean         stroom          = false;
+  private static  boolean         talenParameter  = false;
+  private static  Taxaboom        taxaboom        = null;
+  private static  Integer         threads         = 1;
+  private static  boolean         toepassen       = false;
+  private static  boolean         voorladen       = false;
+  private static  Wijzigingen     wijzigingen     = null;
+
+  /**
+   * De database connectie en de, nog niet samengevoegde, totalen van een
+   * thread.
+   */
+  private static class Werkruimte {
+    private final EntityManager         em;
+    private final Map<String, Totalen>  namen     = new HashMap<>();
+    private final List<Runnable>        teTellen  = new ArrayList<>();
+    private final Map<String, Totalen>  totalen   = new HashMap<>();
+
+    private int fouten  = 0;
+    private int inBatch = 0;
+    private int knopen  = 0;
+
+    Werkruimte(EntityManager em) {
+      this.em = em;
+    }
+  }
 
   protected TaxaImport() {}
 
@@ -96,6 +155,22 @@ public class TaxaImport extends Batchjob {
       return;
     }
 
+    hervat    = paramBundle.getBoolean(NatuurTools.PAR_HERVAT);
+    toepassen = paramBundle.getBoolean(NatuurTools.PAR_TOEPASSEN);
+    var nodig = toepassen ? NatuurTools.PAR_WIJZIGINGEN : NatuurTools.PAR_JSON;
+    if (hervat && !paramBundle.containsArgument(NatuurTools.PAR_CHECKPOINT)) {
+      nodig   = NatuurTools.PAR_CHECKPOINT;
+    }
+    if (!paramBundle.containsArgument(nodig)) {
+      DoosUtils.foutNaarScherm(
+          MessageFormat.format(resourceBundle.getString(ERR_VERPLICHT),
+                               nodig));
+      return;
+    }
+    if (isCombinatiefout()) {
+      return;
+    }
+
     if (paramBundle.containsParameter(NatuurTools.PAR_TALEN)) {
       talen.addAll(Arrays.asList(paramBundle.getString(NatuurTools.PAR_TALEN)
                                             .split(",")));
@@ -104,14 +179,15 @@ public class TaxaImport extends Batchjob {
 
     String  latijnsenaam;
 
-    if (paramBundle.containsArgument(NatuurTools.PAR_LOGGING)) {
+    stil  = paramBundle.getBoolean(NatuurTools.PAR_STIL);
+    // Zonder logbestand en op stil is er niemand die de regels leest.
+    if (paramBundle.containsArgument(NatuurTools.PAR_LOGGING) || !stil) {
       try {
-        log =  new TekstBestand.Builder()
-                .setBestand(
-                        paramBundle.getBestand(NatuurTools.PAR_LOGGING))
-                .setCharset(paramBundle.getString(PAR_CHARSETIN))
-                .setLezen(false)
-                .build();
+        log = new LogSchrijver(
+                  paramBundle.containsArgument(NatuurTools.PAR_LOGGING)
+                      ? paramBundle.getBestand(NatuurTools.PAR_LOGGING)
+                      : null,
+                  paramBundle.getString(PAR_CHARSETIN), !stil);
       } catch (BestandException e) {
         DoosUtils.foutNaarScherm(e.getLocalizedMessage());
         return;
@@ -125,30 +201,38 @@ public class TaxaImport extends Batchjob {
               .setWachtwoord(paramBundle.getString(NatuurTools.PAR_WACHTWOORD))
               .setPersistenceUnitName(NatuurTools.EM_UNITNAME)
               .build()) {
-      em  = dbConn.getEntityManager();
+      werkruimte.set(new Werkruimte(dbConn.getEntityManager()));
 
       iso6392t  =
-          ((TaalDto)  em.createNamedQuery(TaalDto.QRY_TAAL_ISO6391)
+          ((TaalDto)  getEm().createNamedQuery(TaalDto.QRY_TAAL_ISO6391)
                         .setParameter(TaalDto.PAR_ISO6391,
-                                      paramBundle.getString(PAR_TAAL))
+                                      paramBundle.getString(Batchjob.PAR_TAAL))
                         .getSingleResult()).getIso6392t();
 
       getRangen();
-      setSwitches();
-      getTalen();
-
-      latijnsenaam  = verwerkBestand();
+      if (toepassen) {
+        latijnsenaam  = pasWijzigingenToe();
+      } else {
+        setSwitches();
+        getTalen();
+
+        latijnsenaam  = verwerkBestand();
+        commitBatch();
+        voegSamen();
+        schrijfWijzigingen(latijnsenaam);
+        if (null != checkpoint) {
+          checkpoint.sluit();
+        }
+        if (null != hashes) {
+          hashes.schrijf();
+        }
+      }
     } catch (Exception e) {
-      DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+      toonFout(e.getLocalizedMessage());
       return;
-    }
-
-    if (null != log) {
-      try {
-        log.close();
-      } catch (BestandException e) {
-        DoosUtils.foutNaarScherm(e.getLocalizedMessage());
-      }
+    } finally {
+      werkruimte.remove();
+      sluitLog();
     }
 
     Collections.sort(talen);
@@ -173,39 +257,78 @@ public class TaxaImport extends Batchjob {
   }
 
   private static void addRang(String rang) {
-    totalen.get(rang).addAantal();
+    getTotalen(werkruimte.get().totalen, rang).addAantal();
   }
 
   private static void addTaal(String taal) {
-    if (!namen.containsKey(taal)) {
-      initTaal(taal);
-    }
-
-    namen.get(taal).addAantal();
+    getTotalen(werkruimte.get().namen, taal).addAantal();
   }
 
   private static void addNieuweRang(String rang) {
-    totalen.get(rang).addNieuw();
+    getTotalen(werkruimte.get().totalen, rang).addNieuw();
   }
 
   private static void addNieuweTaal(String taal) {
-    if (!namen.containsKey(taal)) {
-      initTaal(taal);
-    }
-
-    namen.get(taal).addNieuw();
+    getTotalen(werkruimte.get().namen, taal).addNieuw();
   }
 
   private static void addUpdateRang(String rang) {
-    totalen.get(rang).addUpdate();
+    getTotalen(werkruimte.get().totalen, rang).addUpdate();
   }
 
   private static void addUpdateTaal(String taal) {
-    if (!namen.containsKey(taal)) {
-      initTaal(taal);
+    getTotalen(werkruimte.get().namen, taal).addUpdate();
+  }
+
+  private static void addNieuweTaxa(JSONArray nieuw,
+                                    Map<Long, TaxonDto> nieuweTaxa) {
+    var ruimte  = werkruimte.get();
+
+    for (var element : nieuw) {
+      var json      = (JSONObject) element;
+      var parentId  = Wijzigingen.getLong(json, Wijzigingen.KEY_PARENT);
+      if (!isBekend(parentId, json, nieuweTaxa)) {
+        continue;
+      }
+
+      var rang      = json.get(NatuurTools.KEY_RANG).toString();
+      var taxon     = new TaxonDto();
+      taxon.setLatijnsenaam(json.get(NatuurTools.KEY_LATIJN).toString());
+      taxon.setParentId(getEchteId(parentId, nieuweTaxa));
+      taxon.setRang(rang);
+      taxon.setUitgestorven((Boolean) json.get(NatuurTools.KEY_UITGESTORVEN));
+      taxon.setVolgnummer(Wijzigingen.getLong(json, NatuurTools.KEY_SEQ));
+      getEm().persist(taxon);
+      nieuweTaxa.put(Wijzigingen.getLong(json, Wijzigingen.KEY_ID), taxon);
+      ruimte.teTellen.add(() -> {
+        addRang(rang);
+        addNieuweRang(rang);
+      });
     }
+  }
+
+  private static void addNieuweTaxonnamen(JSONArray nieuw,
+                                          Map<Long, TaxonDto> nieuweTaxa) {
+    var ruimte  = werkruimte.get();
 
-    namen.get(taal).addUpdate();
+    for (var element : nieuw) {
+      var json      = (JSONObject) element;
+      var taxonId   = Wijzigingen.getLong(json, Wijzigingen.KEY_ID);
+      if (!isBekend(taxonId, json, nieuweTaxa)) {
+        continue;
+      }
+
+      var taal      = json.get(Wijzigingen.KEY_TAAL).toString();
+      var taxonnaam = new TaxonnaamDto();
+      taxonnaam.setNaam(json.get(Wijzigingen.KEY_NAAM).toString());
+      taxonnaam.setTaal(taal);
+      taxonnaam.setTaxonId(getEchteId(taxonId, nieuweTaxa));
+      getEm().persist(taxonnaam);
+      ruimte.teTellen.add(() -> {
+        addTaal(taal);
+        addNieuweTaal(taal);
+      });
+    }
   }
 
   private static void addTaxon(TaxonDto taxon) {
@@ -221,10 +344,17 @@ public class TaxaImport extends Batchjob {
     List<Message>  fouten  = TaxonValidator.valideer(taxon);
 
     if (fouten.isEmpty()) {
-      em.getTransaction().begin();
-      em.persist(taxon);
-      em.getTransaction().commit();
-      addNieuweRang(taxon.getRang());
+      if (null == wijzigingen) {
+        beginBatch();
+        getEm().persist(taxon);
+        // De taxonId is direct nodig voor de namen en de kinderen. Elk nieuw
+        // taxon is dus een eigen INSERT. Wat sinds de vorige flush wacht
+        // (namen en wijzigingen) gaat wel samen in een JDBC batch mee.
+        getEm().flush();
+      } else {
+        taxon.setTaxonId(wijzigingen.addTaxon(taxon));
+      }
+      naarBatch(() -> addNieuweRang(taxon.getRang()));
     } else {
       printMessages(fouten);
     }
@@ -238,15 +368,57 @@ public class TaxaImport extends Batchjob {
     List<Message>  fouten  = TaxonnaamValidator.valideer(taxonnaam);
 
     if (fouten.isEmpty()) {
-      em.getTransaction().begin();
-      em.persist(taxonnaam);
-      em.getTransaction().commit();
-      addNieuweTaal(taxonnaam.getTaal());
+      if (null == wijzigingen) {
+        beginBatch();
+        getEm().persist(taxonnaam);
+      } else {
+        wijzigingen.addTaxonnaam(taxonnaam);
+      }
+      naarBatch(() -> addNieuweTaal(taxonnaam.getTaal()));
     } else {
       printMessages(fouten);
     }
   }
 
+  private static void beginBatch() {
+    if (!getEm().getTransaction().isActive()) {
+      getEm().getTransaction().begin();
+    }
+  }
+
+  /**
+   * Maakt, na een aantal taxa, de persistence context leeg. Het gebeurt
+   * tussen 2 taxa zodat er geen entities meer in gebruik zijn. Enkel de
+   * parents worden nog gebruikt en daarvan is de taxonId genoeg. Een
+   * voorouder wordt, als het nodig is, opnieuw met zijn taxonId gelezen.
+   */
+  private static void beperkContext() {
+    var ruimte  = werkruimte.get();
+    ruimte.knopen++;
+    if (ruimte.knopen < contextgrootte) {
+      return;
+    }
+
+    // Wat nog niet gecommit is blijft, na de flush, in de transactie.
+    if (getEm().getTransaction().isActive()) {
+      getEm().flush();
+    }
+    getEm().clear();
+    ruimte.knopen = 0;
+  }
+
+  private static void commitBatch() {
+    if (getEm().getTransaction().isActive()) {
+      getEm().getTransaction().commit();
+    }
+
+    // Pas na een geslaagde commit worden de totalen bijgewerkt.
+    var ruimte  = werkruimte.get();
+    ruimte.teTellen.forEach(Runnable::run);
+    ruimte.teTellen.clear();
+    ruimte.inBatch  = 0;
+  }
+
   private static void controleerHierarchie(TaxonDto taxon, TaxonDto parent,
                                            StringBuilder verandering) {
     if (null == taxon.getParentId()
@@ -255,28 +427,23 @@ public class TaxaImport extends Batchjob {
       return;
     }
 
-    var hierarchie  = getParent(taxon, parent.getRang());
-
-    if (null == hierarchie.getTaxonId()) {
-      printFout(MessageFormat.format(
+    if (0L == getVoorouder(taxon, parent.getRang())) {
+      printFout(() -> MessageFormat.format(
                   resourceBundle.getString(ERR_STRUCTUUR),
                   prefix.get(taxon.getRang()) + "    ", parent.getRang()));
 
       return;
     }
 
-    if (!parent.getRang().equals(hierarchie.getRang())) {
-      return;
-    }
-
     if (readonly) {
-      printFout(MessageFormat.format(
+      printFout(() -> MessageFormat.format(
                    resourceBundle.getString(ERR_STRUCTUUR),
                    prefix.get(taxon.getRang()) + "    ", parent.getRang()));
     } else {
       verandering.append(" parentId: ").append(taxon.getParentId())
                  .append(WORDT).append(parent.getTaxonId()).append(" ");
       taxon.setParentId(parent.getTaxonId());
+      vergeetVoorouders(taxon);
     }
   }
 
@@ -315,17 +482,17 @@ public class TaxaImport extends Batchjob {
         TaxonnaamDto  taxonnaamDto;
         if (taxon.hasTaxonnaam(taal)) {
           taxonnaamDto  = taxon.getTaxonnaam(taal);
-          if (!taxonnaamDto.getNaam()
-                           .equals(taxonnamen.get(taal))) {
-            print(MessageFormat.format(
+          var huidig    = taxonnaamDto.getNaam();
+          if (!huidig.equals(taxonnamen.get(taal))) {
+            print(() -> MessageFormat.format(
                       resourceBundle.getString(NatuurTools.MSG_VERSCHIL),
                       prefix.get(taxon.getRang()) + "    ", taal,
-                      taxonnamen.get(taal), taxonnaamDto.getNaam()));
+                      taxonnamen.get(taal), huidig));
             taxonnaamDto.setNaam(taxonnamen.get(taal).toString());
             setTaxonnaam(taxonnaamDto);
           }
         } else {
-          print(MessageFormat.format(
+          print(() -> MessageFormat.format(
                     resourceBundle.getString(NatuurTools.MSG_NIEUW),
                     prefix.get(taxon.getRang()) + "    ", taal,
                     taxonnamen.get(taal)));
@@ -341,7 +508,7 @@ public class TaxaImport extends Batchjob {
 
     taxon.getTaxonnamen().forEach(dto -> {
       if (!taxonnamen.containsKey(dto.getTaal())) {
-        DoosUtils.foutNaarScherm(
+        toonFout(
             MessageFormat.format(
                 resourceBundle.getString(NatuurTools.MSG_ONBEKEND),
                 prefix.get(taxon.getRang()) + "    ", dto.getTaal(),
@@ -351,41 +518,76 @@ public class TaxaImport extends Batchjob {
   }
 
   private static void getAanwezigeTalen() {
-    em.createNativeQuery(QRY_TALEN)
+    getEm().createNativeQuery(QRY_TALEN)
       .getResultList()
       .forEach(aanwezigetaal -> talen.add((String) aanwezigetaal));
   }
 
-  private static TaxonDto getOnbekendeTaxon() {
-    var taxon = new TaxonDto();
+  /**
+   * Geeft de echte taxonId voor een, in het wijzigingenbestand, tijdelijke
+   * taxonId. Met isBekend is vooraf gecontroleerd dat die tijdelijke taxonId
+   * bestaat.
+   */
+  private static Long getEchteId(Long taxonId,
+                                 Map<Long, TaxonDto> nieuweTaxa) {
+    if (null == taxonId || taxonId >= 0) {
+      return taxonId;
+    }
 
-    taxon.setParentId(ONBEKEND);
+    var taxon = nieuweTaxa.get(taxonId);
+    if (null == taxon.getTaxonId()) {
+      getEm().flush();
+    }
 
-    return taxon;
+    return taxon.getTaxonId();
   }
 
-  private static TaxonDto getParent(TaxonDto taxon, String parentRang) {
-    var taxonRang = DoosUtils.nullToEmpty(taxon.getRang());
+  private static EntityManager getEm() {
+    return werkruimte.get().em;
+  }
+
+  private static long getVoorouder(TaxonDto taxon, String rang) {
+    var niveau  = niveaus.get(rang);
+    var eigen   = niveaus.get(DoosUtils.nullToEmpty(taxon.getRang()));
 
-    if (rangen.indexOf(taxonRang) < rangen.indexOf(parentRang)) {
-      return getOnbekendeTaxon();
+    if (null == niveau || null == eigen || eigen < niveau) {
+      return 0L;
     }
 
-    if (rangen.indexOf(taxonRang) == rangen.indexOf(parentRang)) {
-      return taxon;
+    return getVoorouders(taxon)[niveau];
+  }
+
+  private static long[] getVoorouders(TaxonDto taxon) {
+    var tabel = voorouders.get(taxon.getTaxonId());
+    if (null != tabel) {
+      return tabel;
     }
 
-    return getParent(getTaxon(taxon.getParentId()), parentRang);
+    var ouder = getTaxonMetId(taxon.getParentId());
+    if (null == ouder) {
+      tabel = new long[rangen.size()];
+    } else {
+      tabel = getVoorouders(ouder).clone();
+    }
+
+    var niveau  = niveaus.get(DoosUtils.nullToEmpty(taxon.getRang()));
+    if (null != niveau) {
+      tabel[niveau] = taxon.getTaxonId();
+    }
+    voorouders.put(taxon.getTaxonId(), tabel);
+
+    return tabel;
   }
 
   private static void getRangen() {
-    var           taal      = paramBundle.getString(PAR_TAAL);
+    var           taal      = paramBundle.getString(Batchjob.PAR_TAAL);
     List<RangDto> ranglijst =
-        em.createQuery(NatuurTools.QRY_RANG).getResultList();
+        getEm().createQuery(NatuurTools.QRY_RANG).getResultList();
 
     ranglijst.forEach(rang -> {
       prefix.put(rang.getRang(),
                  DoosUtils.stringMetLengte("", rang.getNiveau().intValue()));
+      niveaus.put(rang.getRang(), rangen.size());
       rangen.add(rang.getRang());
       totalen.put(rang.getRang(), new Totalen(rang.getNaam(taal), 15));
     });
@@ -401,26 +603,14 @@ public class TaxaImport extends Batchjob {
     }
   }
 
-  private static TaxonDto getTaxon(Long taxonId) {
-    try {
-      return (TaxonDto) em.createQuery(String.format(QRY_TAXON, taxonId))
-                          .getSingleResult();
-    } catch (NoResultException e) {
-      return getOnbekendeTaxon();
-    }
-  }
-
   private static TaxonDto getTaxon(String latijnsenaam, Long parentId,
                                    Long volgnummer, String rang,
                                    Boolean uitgestorven) {
-    var query = em.createNamedQuery(TaxonDto.QRY_LATIJNSENAAM);
-    query.setParameter(TaxonDto.PAR_LATIJNSENAAM, latijnsenaam);
-    TaxonDto  resultaat;
-    try {
-      resultaat = (TaxonDto) query.getSingleResult();
+    var resultaat = zoekTaxon(latijnsenaam);
+    if (null != resultaat) {
       addRang(rang);
       printTaxon(rang, latijnsenaam);
-    } catch (NoResultException e) {
+    } else {
       resultaat = new TaxonDto();
       resultaat.setLatijnsenaam(latijnsenaam);
       resultaat.setRang(rang);
@@ -433,7 +623,7 @@ public class TaxaImport extends Batchjob {
         printTaxon(rang, latijnsenaam);
       } else {
         resultaat.setParentId(ONBEKEND);
-        printFout(
+        printFout(() ->
           MessageFormat.format(
               resourceBundle.getString(
                 NatuurTools.MSG_AFWEZIG), prefix.get(rang),
@@ -444,17 +634,37 @@ public class TaxaImport extends Batchjob {
     return resultaat;
   }
 
-  protected static void initTaal(String taal) {
+  private static Totalen getTotalen(Map<String, Totalen> lijst,
+                                    String sleutel) {
+    return lijst.computeIfAbsent(sleutel, k -> new Totalen(k));
+  }
+
+  private static TaxonDto getTaxonMetId(Long taxonId) {
+    if (null == taxonId || ONBEKEND.equals(taxonId)) {
+      return null;
+    }
+
+    if (null != taxaboom) {
+      var taxon = taxaboom.getTaxon(taxonId);
+      if (null != taxon) {
+        return taxon;
+      }
+    }
+
+    return getEm().find(TaxonDto.class, taxonId);
+  }
+
+  protected static synchronized void initTaal(String taal) {
     var taalnaam  = taal;
 
     try {
       taalnaam    =
-          ((TaalDto)  em.createNamedQuery(TaalDto.QRY_TAAL_ISO6392T)
+          ((TaalDto)  getEm().createNamedQuery(TaalDto.QRY_TAAL_ISO6392T)
                         .setParameter(TaalDto.PAR_ISO6392T, taal)
                         .getSingleResult()).getTaalnaam(iso6392t).getNaam();
 
     } catch(ObjectNotFoundException e) {
-      DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+      toonFout(e.getLocalizedMessage());
     }
 
     namen.put(taal,
@@ -465,49 +675,195 @@ public class TaxaImport extends Batchjob {
     }
   }
 
+  /**
+   * Een tijdelijke taxonId moet bij een nieuw taxon uit het
+   * wijzigingenbestand horen. Is dat niet zo dan wordt het element als fout
+   * gemeld en overgeslagen.
+   */
+  private static boolean isBekend(Long taxonId, JSONObject json,
+                                  Map<Long, TaxonDto> nieuweTaxa) {
+    if (null == taxonId || taxonId >= 0 || nieuweTaxa.containsKey(taxonId)) {
+      return true;
+    }
+
+    werkruimte.get().fouten++;
+    toonFout(MessageFormat.format(resourceBundle.getString(ERR_TIJDELIJK),
+                                  taxonId, json.toJSONString()));
+
+    return false;
+  }
+
+  private static boolean isCombinatie(boolean eerste, String eerstePar,
+                                      boolean tweede, String tweedePar) {
+    if (eerste && tweede) {
+      DoosUtils.foutNaarScherm(
+          MessageFormat.format(resourceBundle.getString(ERR_COMBINATIE),
+                               eerstePar, tweedePar));
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Parameters die samen niet kunnen. Anders wordt 1 ervan stil genegeerd.
+   * Een wijzigingenbestand toepassen is altijd schrijven. Een checkpoint is
+   * er niet bij een plan of bij readonly. De hashes worden enkel gebruikt als
+   * het bestand in het geheugen gelezen en in de database verwerkt wordt.
+   */
+  private static boolean isCombinatiefout() {
+    var metCheckpoint   =
+        paramBundle.containsArgument(NatuurTools.PAR_CHECKPOINT);
+    var metHashes       =
+        paramBundle.containsArgument(NatuurTools.PAR_HASHES);
+    var metReadonly     =
+        Boolean.TRUE.equals(paramBundle.getBoolean(PAR_READONLY));
+    var metStroom       =
+        Boolean.TRUE.equals(paramBundle.getBoolean(NatuurTools.PAR_STROOM));
+    var metWijzigingen  =
+        paramBundle.containsArgument(NatuurTools.PAR_WIJZIGINGEN);
+
+    return isCombinatie(toepassen, NatuurTools.PAR_TOEPASSEN,
+                        metReadonly, PAR_READONLY)
+        || isCombinatie(metCheckpoint, NatuurTools.PAR_CHECKPOINT,
+                        metReadonly, PAR_READONLY)
+        || isCombinatie(metCheckpoint, NatuurTools.PAR_CHECKPOINT,
+                        metWijzigingen, NatuurTools.PAR_WIJZIGINGEN)
+        || isCombinatie(hervat, NatuurTools.PAR_HERVAT,
+                        metReadonly, PAR_READONLY)
+        || isCombinatie(hervat, NatuurTools.PAR_HERVAT,
+                        metWijzigingen, NatuurTools.PAR_WIJZIGINGEN)
+        || isCombinatie(metHashes, NatuurTools.PAR_HASHES,
+                        metReadonly, PAR_READONLY)
+        || isCombinatie(metHashes, NatuurTools.PAR_HASHES,
+                        metStroom, NatuurTools.PAR_STROOM)
+        || isCombinatie(metHashes, NatuurTools.PAR_HASHES,
+                        metWijzigingen, NatuurTools.PAR_WIJZIGINGEN);
+  }
+
+  private static boolean isKlaar(String latijnsenaam) {
+    return null != checkpoint && checkpoint.isKlaar(latijnsenaam);
+  }
+
   protected static boolean isTaalValid(String taal) {
     return !talenParameter || talen.contains(taal);
   }
 
-  protected static void print(String regel) {
-    if (null != log) {
-      try {
-        log.write(regel);
-      } catch (BestandException e) {
-        // Jammer maar helaas :-)
-      }
+  private static void naarBatch(Runnable teller) {
+    var ruimte  = werkruimte.get();
+    ruimte.teTellen.add(teller);
+    ruimte.inBatch++;
+
+    if (ruimte.inBatch >= batch) {
+      commitBatch();
     }
+  }
 
-    if (!stil) {
-      DoosUtils.naarScherm(regel);
+  private static String pasWijzigingenToe() throws BestandException {
+    var plan  = Wijzigingen.lees(
+                    paramBundle.getBestand(NatuurTools.PAR_WIJZIGINGEN,
+                                           BestandConstants.EXT_JSON),
+                    paramBundle.getString(PAR_CHARSETIN));
+
+    Map<Long, TaxonDto> nieuweTaxa  = new HashMap<>();
+
+    beginBatch();
+    try {
+      addNieuweTaxa(plan.getNieuw(), nieuweTaxa);
+      getEm().flush();
+      setTaxa(plan.getGewijzigd(), nieuweTaxa);
+      addNieuweTaxonnamen(plan.getNieuweNamen(), nieuweTaxa);
+      setTaxonnamen(plan.getGewijzigdeNamen(), nieuweTaxa);
+      commitBatch();
+    } catch (RuntimeException e) {
+      if (getEm().getTransaction().isActive()) {
+        getEm().getTransaction().rollback();
+      }
+      throw e;
     }
+    voegSamen();
+
+    return null == plan.getLatijnsenaam() ? "?" : plan.getLatijnsenaam();
   }
 
-  protected static void printFout(String regel) {
+  protected static void print(Supplier<String> regel) {
     if (null != log) {
-      try {
-        log.write(regel);
-      } catch (BestandException e) {
-        // Jammer maar helaas :-)
-      }
+      log.schrijf(regel.get());
     }
+  }
 
-    if (!stil) {
-      DoosUtils.foutNaarScherm(regel);
+  protected static void printFout(Supplier<String> regel) {
+    werkruimte.get().fouten++;
+    if (null != log) {
+      log.fout(regel.get());
     }
   }
 
   protected static void printMessages(List<Message> fouten) {
+    werkruimte.get().fouten++;
     fouten.forEach(fout ->
-      DoosUtils.foutNaarScherm(getMelding(LBL_FOUT, fout.toString())));
+      toonFout(getMelding(LBL_FOUT, fout.toString())));
   }
 
   protected static void printTaxon(String rang, String latijnsenaam) {
-    print(String.format("%s%-3s %s",  prefix.get(rang), rang, latijnsenaam));
+    print(() ->
+        String.format("%s%-3s %s",  prefix.get(rang), rang, latijnsenaam));
+  }
+
+  /**
+   * Sluit een deelboom, direct onder de root, af. Enkel een volledig
+   * verwerkte deelboom komt in het checkpoint.
+   */
+  private static void rondAf(String latijnsenaam) {
+    commitBatch();
+    if (null != checkpoint && null != latijnsenaam) {
+      var ruimte  = werkruimte.get();
+      checkpoint.addKlaar(latijnsenaam, ruimte.totalen, ruimte.namen);
+    }
+    voegSamen();
+  }
+
+  private static void schrijfWijzigingen(String latijnsenaam) {
+    if (null == wijzigingen) {
+      return;
+    }
+
+    var bestand = paramBundle.getBestand(NatuurTools.PAR_WIJZIGINGEN,
+                                         BestandConstants.EXT_JSON);
+    wijzigingen.setLatijnsenaam(latijnsenaam);
+    NatuurTools.writeJson(bestand, wijzigingen.toJson(),
+                          paramBundle.getString(PAR_CHARSETIN));
+    toon(
+        MessageFormat.format(
+            resourceBundle.getString(NatuurTools.MSG_UITVOER), bestand));
+  }
+
+  private static void sluitLog() {
+    if (null == log) {
+      return;
+    }
+
+    try {
+      log.close();
+    } catch (BestandException e) {
+      DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+    }
+    log = null;
+  }
+
+  private static void setMislukt() {
+    if (null != checkpoint) {
+      checkpoint.setMislukt();
+    }
   }
 
   private static void setSwitches() {
-    stil            = paramBundle.getBoolean(NatuurTools.PAR_STIL);
+    contextgrootte  =
+        Math.max(1, paramBundle.getInteger(NatuurTools.PAR_CONTEXTGROOTTE));
+    stroom          = paramBundle.getBoolean(NatuurTools.PAR_STROOM);
+    threads         = Math.max(1,
+                               paramBundle.getInteger(NatuurTools.PAR_THREADS));
+    voorladen       = paramBundle.getBoolean(NatuurTools.PAR_VOORLADEN);
 
     if (Boolean.TRUE.equals(paramBundle.getBoolean(PAR_READONLY))) {
       readonly      = true;
@@ -515,6 +871,8 @@ public class TaxaImport extends Batchjob {
     }
 
     aanmaak         = paramBundle.getBoolean(NatuurTools.PAR_AANMAAK);
+    batch           = Math.max(1,
+                               paramBundle.getInteger(NatuurTools.PAR_BATCH));
     hernummer       = paramBundle.getBoolean(NatuurTools.PAR_HERNUMMER);
     metondersoorten = paramBundle.getBoolean(NatuurTools.PAR_METONDERSOORT);
 
@@ -532,9 +890,84 @@ public class TaxaImport extends Batchjob {
       DoosUtils.naarScherm(resourceBundle
                               .getString(NatuurTools.MSG_METONDERSOORTEN));
     }
+    if (paramBundle.containsArgument(NatuurTools.PAR_WIJZIGINGEN)) {
+      // Het plan wordt gemaakt tegenover de, vooraf geladen, database.
+      wijzigingen = new Wijzigingen();
+      voorladen   = true;
+      DoosUtils.naarScherm(
+          MessageFormat.format(resourceBundle.getString(NatuurTools.MSG_PLAN),
+                               paramBundle.getBestand(
+                                   NatuurTools.PAR_WIJZIGINGEN,
+                                   BestandConstants.EXT_JSON)));
+    } else if (paramBundle.containsArgument(NatuurTools.PAR_CHECKPOINT)) {
+      var bestand = paramBundle.getBestand(NatuurTools.PAR_CHECKPOINT,
+                                           BestandConstants.EXT_JSON);
+      checkpoint  = new Checkpoint(bestand,
+                                   paramBundle.getString(PAR_CHARSETIN));
+      DoosUtils.naarScherm(
+          MessageFormat.format(
+              resourceBundle.getString(NatuurTools.MSG_CHECKPOINT), bestand));
+    }
+    if (paramBundle.containsArgument(NatuurTools.PAR_HASHES)) {
+      // Met andere opties kan een ongewijzigde deelboom ander werk geven.
+      var bestand = paramBundle.getBestand(NatuurTools.PAR_HASHES,
+                                           BestandConstants.EXT_JSON);
+      hashes      = new Deelboomhashes(
+                        bestand, paramBundle.getString(PAR_CHARSETIN),
+                        String.format("%b %b %b %s", aanmaak, hernummer,
+                                      metondersoorten,
+                                      talenParameter
+                                          ? String.join(",", talen) : ""));
+      DoosUtils.naarScherm(
+          MessageFormat.format(
+              resourceBundle.getString(NatuurTools.MSG_HASHES), bestand));
+    }
     DoosUtils.naarScherm();
   }
 
+  /**
+   * Past de gewijzigde taxa, per nieuwe waarde, in een aantal update
+   * statements aan.
+   */
+  private static void setTaxa(JSONArray gewijzigd,
+                              Map<Long, TaxonDto> nieuweTaxa) {
+    Map<Long, List<Long>>     perParent       = new HashMap<>();
+    Map<Boolean, List<Long>>  perUitgestorven = new HashMap<>();
+    Map<Long, List<Long>>     perVolgnummer   = new HashMap<>();
+    var                       ruimte          = werkruimte.get();
+
+    for (var element : gewijzigd) {
+      var json      = (JSONObject) element;
+      var id        = Wijzigingen.getLong(json, Wijzigingen.KEY_ID);
+      var parentId  = Wijzigingen.getLong(json, Wijzigingen.KEY_PARENT);
+      if (!isBekend(id, json, nieuweTaxa)
+          || !isBekend(parentId, json, nieuweTaxa)) {
+        continue;
+      }
+
+      var rang      = json.get(NatuurTools.KEY_RANG).toString();
+      var taxonId   = getEchteId(id, nieuweTaxa);
+      perParent.computeIfAbsent(getEchteId(parentId, nieuweTaxa),
+                                k -> new ArrayList<>()).add(taxonId);
+      perUitgestorven.computeIfAbsent(
+          (Boolean) json.get(NatuurTools.KEY_UITGESTORVEN),
+          k -> new ArrayList<>()).add(taxonId);
+      perVolgnummer.computeIfAbsent(
+          Wijzigingen.getLong(json, NatuurTools.KEY_SEQ),
+          k -> new ArrayList<>()).add(taxonId);
+      ruimte.teTellen.add(() -> {
+        addRang(rang);
+        addUpdateRang(rang);
+      });
+    }
+
+    perParent.forEach((waarde, ids) -> update(QRY_UPD_PARENT, waarde, ids));
+    perUitgestorven.forEach((waarde, ids) ->
+        update(QRY_UPD_UITGESTORVEN, waarde, ids));
+    perVolgnummer.forEach((waarde, ids) ->
+        update(QRY_UPD_VOLGNUMMER, waarde, ids));
+  }
+
   private static void setTaxon(TaxonDto taxon, StringBuilder verandering) {
     if (readonly || taxon.getParentId().equals(ONBEKEND)) {
       return;
@@ -553,16 +986,19 @@ public class TaxaImport extends Batchjob {
     List<Message>  fouten  = TaxonValidator.valideer(form);
 
     if (fouten.isEmpty()) {
-      em.getTransaction().begin();
-      TaxonDto  updated = em.merge(taxon);
-      em.persist(updated);
-      em.getTransaction().commit();
-      print(MessageFormat.format(
+      if (null == wijzigingen) {
+        beginBatch();
+        TaxonDto  updated = getEm().merge(taxon);
+        getEm().persist(updated);
+      } else {
+        wijzigingen.setTaxon(taxon);
+      }
+      print(() -> MessageFormat.format(
                     resourceBundle.getString(NatuurTools.MSG_WIJZIGING),
                     prefix.get(taxon.getRang()) + "    ",
                     resourceBundle.getString(NatuurTools.MSG_HIERARCHIE),
                     verandering.toString().trim()));
-      addUpdateRang(taxon.getRang());
+      naarBatch(() -> addUpdateRang(taxon.getRang()));
     } else {
       printMessages(fouten);
     }
@@ -576,17 +1012,137 @@ public class TaxaImport extends Batchjob {
     var fouten  = TaxonnaamValidator.valideer(taxonnaam);
 
     if (fouten.isEmpty()) {
-      em.getTransaction().begin();
-      TaxonnaamDto  updated = em.merge(taxonnaam);
-      em.persist(updated);
-      em.getTransaction().commit();
-      addUpdateTaal(taxonnaam.getTaal());
+      if (null == wijzigingen) {
+        beginBatch();
+        TaxonnaamDto  updated = getEm().merge(taxonnaam);
+        getEm().persist(updated);
+      } else {
+        wijzigingen.setTaxonnaam(taxonnaam);
+      }
+      naarBatch(() -> addUpdateTaal(taxonnaam.getTaal()));
     } else {
       printMessages(fouten);
     }
   }
 
+  /**
+   * Past de gewijzigde namen aan. De namen worden, per taal, met een aantal
+   * queries gelezen. De updates gaan bij de flush, in JDBC batches, naar de
+   * database.
+   */
+  private static void setTaxonnamen(JSONArray gewijzigd,
+                                    Map<Long, TaxonDto> nieuweTaxa) {
+    Map<String, Map<Long, String>>  perTaal = new HashMap<>();
+    var                             ruimte  = werkruimte.get();
+
+    for (var element : gewijzigd) {
+      var json    = (JSONObject) element;
+      var taxonId = Wijzigingen.getLong(json, Wijzigingen.KEY_ID);
+      if (!isBekend(taxonId, json, nieuweTaxa)) {
+        continue;
+      }
+
+      perTaal.computeIfAbsent(json.get(Wijzigingen.KEY_TAAL).toString(),
+                              k -> new HashMap<>())
+             .put(getEchteId(taxonId, nieuweTaxa),
+                  json.get(Wijzigingen.KEY_NAAM).toString());
+    }
+
+    perTaal.forEach((taal, perTaxon) -> {
+      List<Long>  ids = new ArrayList<>(perTaxon.keySet());
+      for (var i = 0; i < ids.size(); i += Taxaboom.MAX_IN) {
+        List<TaxonnaamDto>  taxonnamen =
+            getEm().createQuery(QRY_NAMEN)
+                   .setParameter(PAR_NAAMTAAL, taal)
+                   .setParameter(PAR_IDS,
+                                 ids.subList(i, Math.min(i + Taxaboom.MAX_IN,
+                                                         ids.size())))
+                   .getResultList();
+        taxonnamen.forEach(taxonnaam -> {
+          taxonnaam.setNaam(perTaxon.get(taxonnaam.getTaxonId()));
+          ruimte.teTellen.add(() -> {
+            addTaal(taal);
+            addUpdateTaal(taal);
+          });
+        });
+      }
+    });
+  }
+
+  /**
+   * Telt een ongewijzigde deelboom zoals die verwerkt zou zijn.
+   */
+  private static void telOngewijzigd(JSONObject json) {
+    addRang(json.get(NatuurTools.KEY_RANG).toString());
+    if (json.containsKey(NatuurTools.KEY_NAMEN)) {
+      ((JSONObject) json.get(NatuurTools.KEY_NAMEN)).forEach((taal, naam) -> {
+        if (isTaalValid(taal.toString())
+            && DoosUtils.isNotBlankOrNull(naam)) {
+          addTaal(taal.toString());
+        }
+      });
+    }
+
+    if (json.containsKey(NatuurTools.KEY_SUBRANGEN)) {
+      for (var subrang : (JSONArray) json.get(NatuurTools.KEY_SUBRANGEN)) {
+        telOngewijzigd((JSONObject) subrang);
+      }
+    }
+  }
+
+  /**
+   * Regels die ook zonder logbestand of op stil op het scherm moeten komen.
+   * Met een LogSchrijver gaan ze via diens wachtrij zodat ze de andere regels
+   * niet inhalen.
+   */
+  private static void toon(String regel) {
+    if (null == log) {
+      DoosUtils.naarScherm(regel);
+    } else {
+      log.toon(regel);
+    }
+  }
+
+  private static void toonFout(String regel) {
+    if (null == log) {
+      DoosUtils.foutNaarScherm(regel);
+    } else {
+      log.toonFout(regel);
+    }
+  }
+
+  private static void update(String query, Object waarde, List<Long> ids) {
+    for (var i = 0; i < ids.size(); i += Taxaboom.MAX_IN) {
+      getEm().createQuery(query)
+             .setParameter(PAR_WAARDE, waarde)
+             .setParameter(PAR_IDS,
+                           ids.subList(i, Math.min(i + Taxaboom.MAX_IN,
+                                                   ids.size())))
+             .executeUpdate();
+    }
+  }
+
+  /**
+   * Het taxon heeft een andere parent. De tabellen van het taxon en van al
+   * zijn afstammelingen wijzen nog naar de oude lijn.
+   */
+  private static void vergeetVoorouders(TaxonDto taxon) {
+    var niveau  = niveaus.get(DoosUtils.nullToEmpty(taxon.getRang()));
+    if (null == niveau) {
+      voorouders.clear();
+      return;
+    }
+
+    var taxonId = taxon.getTaxonId().longValue();
+    voorouders.remove(taxon.getTaxonId());
+    voorouders.values().removeIf(tabel -> tabel[niveau] == taxonId);
+  }
+
   private static String verwerkBestand() {
+    if (stroom) {
+      return verwerkStroom();
+    }
+
     var latijnsenaam  = "?";
 
     try (var jsonBestand   =
@@ -596,27 +1152,214 @@ public class TaxaImport extends Batchjob {
                                                     BestandConstants.EXT_JSON))
                          .setCharset(paramBundle.getString(PAR_CHARSETIN))
                          .build()) {
+      var   root      = new JSONObject();
       latijnsenaam    = jsonBestand.get(NatuurTools.KEY_LATIJN).toString();
-      var   rang      = jsonBestand.get(NatuurTools.KEY_RANG).toString();
-      var   parent    = getTaxon(latijnsenaam, 0L, 0L, rang, false);
-      if (null == parent.getTaxonId()) {
+      root.put(NatuurTools.KEY_LATIJN, latijnsenaam);
+      root.put(NatuurTools.KEY_RANG,
+               jsonBestand.get(NatuurTools.KEY_RANG).toString());
+      var   parent    = verwerkRoot(root);
+      if (null == parent) {
         return latijnsenaam;
       }
 
-      for (Object taxa :
-              (JSONArray) jsonBestand.get(NatuurTools.KEY_SUBRANGEN)) {
-        verwerkRang(parent, (JSONObject) taxa);
+      var   subrangen =
+          (JSONArray) jsonBestand.get(NatuurTools.KEY_SUBRANGEN);
+      if (null != hashes) {
+        hashes.lees();
+        hashes.bereken(latijnsenaam, subrangen);
+      }
+      if (threads > 1) {
+        verwerkParallel(parent, subrangen);
+      } else {
+        for (Object taxa : subrangen) {
+          verwerkDeelboom(parent, (JSONObject) taxa);
+        }
       }
     } catch (BestandException e) {
-      DoosUtils.foutNaarScherm(e.getLocalizedMessage());
+      toonFout(e.getLocalizedMessage());
+      setMislukt();
     }
 
     return latijnsenaam;
   }
 
-  private static void verwerkRang(TaxonDto parent, JSONObject json) {
+  private static void verwerkDeelboom(TaxonDto parent, JSONObject json) {
+    var latijnsenaam  = json.get(NatuurTools.KEY_LATIJN).toString();
+    if (isKlaar(latijnsenaam)) {
+      return;
+    }
+
+    rondAf(verwerkRang(parent, json) ? latijnsenaam : null);
+  }
+
+  private static void verwerkDeelboom(EntityManagerFactory emf,
+                                      TaxonDto parent, JSONObject json) {
+    var em  = emf.createEntityManager();
+    werkruimte.set(new Werkruimte(em));
+
+    try {
+      verwerkDeelboom(parent, json);
+    } catch (RuntimeException e) {
+      if (em.getTransaction().isActive()) {
+        em.getTransaction().rollback();
+      }
+      setMislukt();
+      toonFout(e.getLocalizedMessage());
+    } finally {
+      voegSamen();
+      em.close();
+      werkruimte.remove();
+    }
+  }
+
+  private static void verwerkParallel(TaxonDto parent, JSONArray subrangen) {
+    // Een nieuwe root moet gecommit zijn voor de threads er kinderen onder
+    // zetten. Anders wachten ze op deze transactie en deze op hen.
+    commitBatch();
+
+    // Voorgeladen taxa worden in de threads 'detached' gebruikt.
+    if (null != taxaboom) {
+      getEm().clear();
+    }
+
+    var                 emf       = getEm().getEntityManagerFactory();
+    var                 executor  = Executors.newFixedThreadPool(threads);
+    List<Future<?>>     taken     = new ArrayList<>();
+
+    for (var subrang : subrangen) {
+      var json  = (JSONObject) subrang;
+      if (!isKlaar(json.get(NatuurTools.KEY_LATIJN).toString())) {
+        taken.add(executor.submit(() -> verwerkDeelboom(emf, parent, json)));
+      }
+    }
+    executor.shutdown();
+
+    for (var taak : taken) {
+      try {
+        taak.get();
+      } catch (ExecutionException e) {
+        toonFout(e.getCause().getLocalizedMessage());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        executor.shutdownNow();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Verwerkt het taxon en zijn subrangen. Geeft false als het taxon niet
+   * verwerkt kon worden.
+   */
+  private static boolean verwerkRang(TaxonDto parent, JSONObject json) {
+    if (null != hashes && hashes.isOngewijzigd(json)) {
+      telOngewijzigd(json);
+      return true;
+    }
+
+    var ruimte  = werkruimte.get();
+    var fouten  = ruimte.fouten;
+    var taxon   = verwerkTaxon(parent, json);
+
+    if (null == taxon) {
+      return false;
+    }
+
+    if (json.containsKey(NatuurTools.KEY_SUBRANGEN)) {
+      for (var subrang : (JSONArray) json.get(NatuurTools.KEY_SUBRANGEN)) {
+        verwerkRang(taxon, (JSONObject) subrang);
+      }
+    }
+
+    if (null != hashes) {
+      if (fouten == ruimte.fouten) {
+        // Pas na de commit is de deelboom echt verwerkt.
+        ruimte.teTellen.add(() -> hashes.bewaar(json));
+      } else {
+        hashes.vergeet(json);
+      }
+    }
+
+    return true;
+  }
+
+  private static TaxonDto verwerkRoot(JSONObject json) {
+    var latijnsenaam  = json.get(NatuurTools.KEY_LATIJN).toString();
+    var rang          = json.get(NatuurTools.KEY_RANG).toString();
+    var parent        = getTaxon(latijnsenaam, 0L, 0L, rang, false);
+    if (null == parent.getTaxonId()) {
+      return null;
+    }
+
+    if (null != checkpoint && !startCheckpoint(latijnsenaam)) {
+      return null;
+    }
+
+    if (voorladen) {
+      taxaboom  = new Taxaboom(getEm(), parent);
+    }
+
+    // De root hoort bij geen enkele deelboom.
+    voegSamen();
+    root  = parent;
+
+    return parent;
+  }
+
+  private static String verwerkStroom() {
+    var lezer =
+        new JsonTaxaLezer<TaxonDto>(TaxaImport::verwerkStroomTaxon);
+
+    try {
+      lezer.lees(paramBundle.getBestand(NatuurTools.PAR_JSON,
+                                        BestandConstants.EXT_JSON),
+                 paramBundle.getString(PAR_CHARSETIN));
+      // De laatste deelboom is nu ook volledig verwerkt.
+      rondAf(lopend);
+      lopend  = null;
+    } catch (BestandException e) {
+      toonFout(e.getLocalizedMessage());
+      setMislukt();
+    }
+
+    return null == lezer.getLatijnsenaam() ? "?" : lezer.getLatijnsenaam();
+  }
+
+  /**
+   * In een stroom is een deelboom onder de root volledig verwerkt als de
+   * volgende begint.
+   */
+  private static TaxonDto verwerkStroomTaxon(TaxonDto ouder,
+                                             JSONObject json) {
+    if (null == ouder) {
+      return verwerkRoot(json);
+    }
+
+    if (ouder != root) {
+      return verwerkTaxon(ouder, json);
+    }
+
+    rondAf(lopend);
+    lopend  = null;
+
+    var latijnsenaam  = json.get(NatuurTools.KEY_LATIJN).toString();
+    if (isKlaar(latijnsenaam)) {
+      return null;
+    }
+
+    var taxon = verwerkTaxon(ouder, json);
+    if (null != taxon) {
+      lopend  = latijnsenaam;
+    }
+
+    return taxon;
+  }
+
+  private static TaxonDto verwerkTaxon(TaxonDto parent, JSONObject json) {
     Boolean uitgestorven;
 
+    beperkContext();
+
     var latijnsenaam  = json.get(NatuurTools.KEY_LATIJN).toString();
     var rang          = json.get(NatuurTools.KEY_RANG).toString();
     var volgnummer    =
@@ -632,16 +1375,80 @@ public class TaxaImport extends Batchjob {
     controleerTaxon(taxon, volgnummer, parent, uitgestorven);
 
     if (null == taxon.getTaxonId()) {
-      return;
+      return null;
     }
 
     if (json.containsKey(NatuurTools.KEY_NAMEN)) {
       controleerTaxonnamen(taxon, (JSONObject) json.get(NatuurTools.KEY_NAMEN));
     }
-    if (json.containsKey(NatuurTools.KEY_SUBRANGEN)) {
-      for (var subrang : (JSONArray) json.get(NatuurTools.KEY_SUBRANGEN)) {
-        verwerkRang(taxon, (JSONObject) subrang);
+
+    return taxon;
+  }
+
+  private static boolean startCheckpoint(String latijnsenaam) {
+    if (hervat) {
+      try {
+        checkpoint.lees();
+      } catch (BestandException e) {
+        toonFout(e.getLocalizedMessage());
+        setMislukt();
+        return false;
       }
+
+      if (null != checkpoint.getLatijnsenaam()
+          && !latijnsenaam.equals(checkpoint.getLatijnsenaam())) {
+        toonFout(
+            MessageFormat.format(resourceBundle.getString(ERR_CHECKPOINT),
+                                 latijnsenaam,
+                                 checkpoint.getLatijnsenaam()));
+        setMislukt();
+        return false;
+      }
+
+      // De totalen van de al verwerkte deelbomen.
+      var ruimte  = werkruimte.get();
+      checkpoint.getTotalen().forEach((rang, totaal) ->
+          getTotalen(ruimte.totalen, rang).voegToe(totaal));
+      checkpoint.getNamen().forEach((taal, totaal) ->
+          getTotalen(ruimte.namen, taal).voegToe(totaal));
+    }
+
+    checkpoint.setLatijnsenaam(latijnsenaam);
+
+    return true;
+  }
+
+  private static synchronized void voegSamen() {
+    var ruimte  = werkruimte.get();
+
+    ruimte.totalen.forEach((rang, totaal) ->
+        totalen.computeIfAbsent(rang, k -> new Totalen(k, 15))
+               .voegToe(totaal));
+    ruimte.namen.forEach((taal, totaal) -> {
+      if (!namen.containsKey(taal)) {
+        initTaal(taal);
+      }
+      namen.get(taal).voegToe(totaal);
+    });
+    ruimte.totalen.clear();
+    ruimte.namen.clear();
+  }
+
+  private static TaxonDto zoekTaxon(String latijnsenaam) {
+    if (null != taxaboom) {
+      var taxon = taxaboom.getTaxon(latijnsenaam);
+      if (null != taxon) {
+        return taxon;
+      }
+    }
+
+    // Niet voorgeladen taxa staan buiten de root of zijn nieuw.
+    var query = getEm().createNamedQuery(TaxonDto.QRY_LATIJNSENAAM);
+    query.setParameter(TaxonDto.PAR_LATIJNSENAAM, latijnsenaam);
+    try {
+      return (TaxonDto) query.getSingleResult();
+    } catch (NoResultException e) {
+      return null;
     }
   }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.natuur.domain.TaxonDto;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+
+
+/**
+ * Een 'tak' van de taxonomie die, per niveau, met een beperkt aantal queries
+ * in het geheugen geladen wordt. De namen worden direct mee opgehaald.
+ *
+ * @author Marco de Booij
+ */
+public class Taxaboom {
+  protected static final  int     MAX_IN      = 1000;
+  protected static final  String  PAR_OUDERS  = "ouders";
+  protected static final  String  QRY_KINDEREN  =
+      "select distinct t from TaxonDto t left join fetch t.taxonnamen "
+          + "where t.parentId in :ouders";
+
+  private static final  Comparator<TaxonDto>  volgorde  =
+      Comparator.comparing(TaxonDto::getVolgnummer,
+                           Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(TaxonDto::getLatijnsenaam);
+
+  private final Map<Long, List<TaxonDto>> kinderen  = new HashMap<>();
+  private final Map<String, TaxonDto>     latijn    = new HashMap<>();
+  private final Map<Long, TaxonDto>       taxa      = new HashMap<>();
+
+  public Taxaboom(EntityManager em, Collection<TaxonDto> roots) {
+    List<Long>  ouders  = new ArrayList<>();
+
+    roots.forEach(root -> {
+      if (voegToe(root)) {
+        ouders.add(root.getTaxonId());
+      }
+    });
+
+    laad(ouders, em);
+  }
+
+  public Taxaboom(EntityManager em, TaxonDto root) {
+    this(em, Collections.singletonList(root));
+  }
+
+  public int getAantal() {
+    return taxa.size();
+  }
+
+  public List<TaxonDto> getKinderen(Long parentId) {
+    return kinderen.getOrDefault(parentId, Collections.emptyList());
+  }
+
+  public TaxonDto getTaxon(Long taxonId) {
+    return taxa.get(taxonId);
+  }
+
+  public TaxonDto getTaxon(String latijnsenaam) {
+    return latijn.get(latijnsenaam);
+  }
+
+  public Collection<TaxonDto> getTaxa() {
+    return taxa.values();
+  }
+
+  private void laad(List<Long> ouders, EntityManager em) {
+    var niveau  = ouders;
+    while (!niveau.isEmpty()) {
+      List<Long>  volgende  = new ArrayList<>();
+      for (var i = 0; i < niveau.size(); i += MAX_IN) {
+        List<TaxonDto>  resultaat =
+            em.createQuery(QRY_KINDEREN)
+              .setParameter(PAR_OUDERS,
+                            niveau.subList(i, Math.min(i + MAX_IN,
+                                                       niveau.size())))
+              .getResultList();
+        resultaat.forEach(taxon -> {
+          if (voegToe(taxon)) {
+            kinderen.computeIfAbsent(taxon.getParentId(),
+                                     k -> new ArrayList<>())
+                    .add(taxon);
+            volgende.add(taxon.getTaxonId());
+          } else {
+            voegRootToe(taxon);
+          }
+        });
+      }
+      niveau  = volgende;
+    }
+
+    kinderen.values().forEach(lijst -> lijst.sort(volgorde));
+  }
+
+  /**
+   * Een root die onder een andere root hangt (bv. Aves;Passeriformes) is al
+   * geladen. Hij komt wel bij de kinderen van zijn parent maar zijn kinderen
+   * worden niet nog een keer opgehaald.
+   */
+  private void voegRootToe(TaxonDto taxon) {
+    var root  = taxa.get(taxon.getTaxonId());
+    if (null == root) {
+      return;
+    }
+
+    var lijst = kinderen.computeIfAbsent(taxon.getParentId(),
+                                         k -> new ArrayList<>());
+    if (!lijst.contains(root)) {
+      lijst.add(root);
+    }
+  }
+
+  private boolean voegToe(TaxonDto taxon) {
+    if (null == taxon.getTaxonId()
+        || taxa.containsKey(taxon.getTaxonId())) {
+      return false;
+    }
+
+    taxa.put(taxon.getTaxonId(), taxon);
+    latijn.put(taxon.getLatijnsenaam(), taxon);
+
+    return true;
+  }
+}
@@ -22,18 +22,31 @@ import eu.debooy.doosutils.DoosBanner;
 import eu.debooy.doosutils.DoosUtils;
 import eu.debooy.doosutils.ParameterBundle;
 import eu.debooy.doosutils.access.BestandConstants;
-import eu.debooy.doosutils.access.TekstBestand;
 import eu.debooy.doosutils.exception.BestandException;
 import eu.debooy.doosutils.percistence.DbConnection;
 import eu.debooy.natuur.NatuurUtils;
 import eu.debooy.natuur.domain.RangDto;
 import eu.debooy.natuur.domain.TaxonDto;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
@@ -42,9 +55,11 @@ import javax.persistence.Query;
  * @author Marco de Booij
  */
 public class Taxonomie extends Batchjob {
+  private static final  int         BUFFER        = 65536;
   private static final  ClassLoader CLASSLOADER   =
       Taxonomie.class.getClassLoader();
   private static final  String      DEF_TEMPLATE  = "taxonomie.tex";
+  private static final  String      INC_TAXA      = "taxa";
   private static final  String      QRY_ROOT      =
       "select t from TaxonDto t where t.parentId is null "
           + "order by t.rang, t.volgnummer";
@@ -54,28 +69,31 @@ public class Taxonomie extends Batchjob {
   private static final  List<String>        talen   = new ArrayList<>();
 
   private static  String  taal    = "";
+  private static  int     threads = 1;
+
+  /**
+   * Een deel van de uitvoer dat in een thread gemaakt wordt. Ook de regels
+   * voor het scherm worden bewaard zodat ze in de juiste volgorde komen.
+   */
+  private static class Deel {
+    private final List<String>  scherm  = new ArrayList<>();
+    private final StringWriter  tex     = new StringWriter();
+
+    private void schrijf(BufferedWriter texBestand) throws IOException {
+      scherm.forEach(DoosUtils::naarScherm);
+      texBestand.write(tex.toString());
+    }
+  }
 
   protected Taxonomie() {}
 
-  private static TekstBestand bepaalTexInvoer()
+  private static TexSjabloon bepaalSjabloon()
       throws BestandException {
-    TekstBestand  texInvoer;
-
     if (paramBundle.containsParameter(NatuurTools.PAR_TEMPLATE)) {
-      texInvoer =
-          new TekstBestand.Builder()
-                          .setBestand(
-                              paramBundle.getBestand(NatuurTools.PAR_TEMPLATE))
-                          .build();
-    } else {
-      texInvoer =
-          new TekstBestand.Builder()
-                          .setBestand(DEF_TEMPLATE)
-                          .setClassLoader(CLASSLOADER)
-                          .build();
+      return TexSjabloon.get(paramBundle.getBestand(NatuurTools.PAR_TEMPLATE));
     }
 
-    return texInvoer;
+    return TexSjabloon.get(DEF_TEMPLATE, CLASSLOADER);
   }
 
   public static void execute(String[] args) {
@@ -101,6 +119,8 @@ public class Taxonomie extends Batchjob {
       Collections.sort(talen);
     }
 
+    threads = Math.max(1, paramBundle.getInteger(NatuurTools.PAR_THREADS));
+
     try (var dbConn =
             new DbConnection.Builder()
                   .setDbUser(paramBundle.getString(NatuurTools.PAR_DBUSER))
@@ -110,14 +130,14 @@ public class Taxonomie extends Batchjob {
                   .setPersistenceUnitName(NatuurTools.EM_UNITNAME)
                   .build();
         var texBestand =
-            new TekstBestand.Builder()
-                            .setLezen(false)
-                            .setBestand(
-                                paramBundle
-                                    .getBestand(PAR_TEXBESTAND,
-                                                BestandConstants.EXT_TEX))
-                            .setCharset(BestandConstants.UTF8)
-                            .build()) {
+            new BufferedWriter(
+                new OutputStreamWriter(
+                    Files.newOutputStream(
+                        Paths.get(paramBundle
+                                      .getBestand(PAR_TEXBESTAND,
+                                                  BestandConstants.EXT_TEX))),
+                    Charset.forName(BestandConstants.UTF8)),
+                BUFFER)) {
       var em  = dbConn.getEntityManager();
       taal    = ((TaalDto)  em.createNamedQuery(TaalDto.QRY_TAAL_ISO6391)
                               .setParameter(TaalDto.PAR_ISO6391,
@@ -186,52 +206,123 @@ public class Taxonomie extends Batchjob {
     return params;
   }
 
-  private static void verwerkKinderen(TaxonDto parent, TekstBestand texBestand,
-                                      EntityManager em)
-      throws BestandException {
-    if (rangen.isEmpty()
-        || rangen.contains(parent.getRang())) {
-      DoosUtils.naarScherm(prefix.get(parent.getRang()) + " " + parent.getRang()
-                            + " " + NatuurUtils
-                                .getLatijnsenaam(parent.getLatijnsenaam(),
-                                                 parent.isUitgestorven()));
-      var regel   = new StringBuilder();
-      var naam    =
-          getLatexNaam(parent.getNaam(taal));
-      var latijn  = parent.getLatijnsenaam();
-      regel.append("\\begin{samepage}\\taxon{")
-           .append(parent.getRang()).append("}{")
-           .append(NatuurUtils.getLatijnsenaam(latijn, parent.isUitgestorven()))
-           .append("}{");
-      if (!naam.equals(latijn)) {
-        regel.append(naam);
+  /**
+   * Schrijft een taxon, met zijn kinderen, naar een Deel.
+   */
+  private static Deel schrijfDeel(TaxonDto taxon, Taxaboom boom)
+      throws IOException {
+    var deel  = new Deel();
+    try (var uitvoer  = new BufferedWriter(deel.tex)) {
+      if (null == boom) {
+        schrijfTaxon(taxon, uitvoer, deel.scherm::add);
+      } else {
+        verwerkKinderen(taxon, uitvoer, deel.scherm::add, boom);
       }
-      regel.append("}{");
-      parent.getTaxonnamen()
-            .stream().sorted()
-            .filter(taxonnaam -> (talen.contains(taxonnaam.getTaal())
-                                  || talen.isEmpty()))
-            .forEachOrdered(taxonnaam ->
-                regel.append("\\naam{")
-                     .append(taxonnaam.getTaal())
-                     .append("}{")
-                     .append(getLatexNaam(taxonnaam.getNaam()))
-                     .append("}"));
-      texBestand.write(regel.append("}\\end{samepage}").toString());
     }
 
-    var query = em.createNamedQuery(TaxonDto.QRY_KINDEREN);
-    query.setParameter(TaxonDto.PAR_OUDER, parent.getTaxonId());
+    return deel;
+  }
 
-    List<TaxonDto>  taxa  = query.getResultList();
-    for (var taxon : taxa) {
-      verwerkKinderen(taxon, texBestand, em);
+  private static void schrijfTaxon(TaxonDto taxon, BufferedWriter texBestand,
+                                   Consumer<String> scherm)
+      throws IOException {
+    if (!rangen.isEmpty()
+        && !rangen.contains(taxon.getRang())) {
+      return;
     }
+
+    scherm.accept(prefix.get(taxon.getRang()) + " " + taxon.getRang()
+                  + " " + NatuurUtils
+                      .getLatijnsenaam(taxon.getLatijnsenaam(),
+                                       taxon.isUitgestorven()));
+    var regel   = new StringBuilder();
+    var naam    =
+        getLatexNaam(taxon.getNaam(taal));
+    var latijn  = taxon.getLatijnsenaam();
+    regel.append("\\begin{samepage}\\taxon{")
+         .append(taxon.getRang()).append("}{")
+         .append(NatuurUtils.getLatijnsenaam(latijn, taxon.isUitgestorven()))
+         .append("}{");
+    if (!naam.equals(latijn)) {
+      regel.append(naam);
+    }
+    regel.append("}{");
+    taxon.getTaxonnamen()
+         .stream()
+         .filter(taxonnaam -> (talen.contains(taxonnaam.getTaal())
+                               || talen.isEmpty()))
+         .sorted()
+         .forEachOrdered(taxonnaam ->
+             regel.append("\\naam{")
+                  .append(taxonnaam.getTaal())
+                  .append("}{")
+                  .append(getLatexNaam(taxonnaam.getNaam()))
+                  .append("}"));
+    texBestand.write(regel.append("}\\end{samepage}").toString());
+    texBestand.newLine();
   }
 
-  private static void verwerkTaxa(TekstBestand texBestand, TaxonDto parent,
-                                  EntityManager em)
-      throws BestandException {
+  /**
+   * De kinderen, met hun namen, komen uit de Taxaboom. Die heeft alle taxa
+   * onder de roots in een paar queries per niveau geladen.
+   */
+  private static void verwerkKinderen(TaxonDto parent,
+                                      BufferedWriter texBestand,
+                                      Consumer<String> scherm, Taxaboom boom)
+      throws IOException {
+    schrijfTaxon(parent, texBestand, scherm);
+
+    for (var taxon : boom.getKinderen(parent.getTaxonId())) {
+      verwerkKinderen(taxon, texBestand, scherm, boom);
+    }
+  }
+
+  /**
+   * Schrijft de deelbomen direct onder de roots tegelijk, elk naar een eigen
+   * Deel. De delen worden in de volgorde van de boom in het bestand gezet.
+   * De uitvoer is dus dezelfde als met 1 thread. Er worden nooit meer delen
+   * gestart dan er threads zijn boven het deel dat nog geschreven moet
+   * worden. Er staan dus hooguit 'threads' delen in het geheugen.
+   */
+  private static void verwerkParallel(List<TaxonDto> roots,
+                                      BufferedWriter texBestand,
+                                      Taxaboom boom, EntityManager em)
+      throws IOException {
+    // De roots worden nog met de EntityManager geschreven.
+    List<Callable<Deel>>  delen = new ArrayList<>();
+    for (var root : roots) {
+      var kop = schrijfDeel(root, null);
+      delen.add(() -> kop);
+      boom.getKinderen(root.getTaxonId())
+          .forEach(taxon -> delen.add(() -> schrijfDeel(taxon, boom)));
+    }
+
+    // De taxa uit de Taxaboom worden in de threads 'detached' gebruikt.
+    em.clear();
+
+    var                 executor  = Executors.newFixedThreadPool(threads);
+    var                 volgende  = delen.iterator();
+    Deque<Future<Deel>> taken     = new ArrayDeque<>();
+    try {
+      while (volgende.hasNext() || !taken.isEmpty()) {
+        while (volgende.hasNext() && taken.size() < threads) {
+          taken.add(executor.submit(volgende.next()));
+        }
+        taken.poll().get().schrijf(texBestand);
+      }
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void verwerkTaxa(BufferedWriter texBestand,
+                                  TaxonDto parent, EntityManager em)
+      throws IOException {
     Query query;
     if (null != parent.getTaxonId()) {
       query = em.createNamedQuery(TaxonDto.QRY_LATIJNSENAAM);
@@ -241,45 +332,27 @@ public class Taxonomie extends Batchjob {
     }
 
     List<TaxonDto>  root  = query.getResultList();
-    for (var taxon : root) {
-      verwerkKinderen(taxon, texBestand, em);
-    }
-  }
-
-  private static void verwerkRegel(String regel, Map<String, String> params,
-                                   TekstBestand texBestand)
-      throws BestandException {
-    var afgekeurd = 0;
-    for (var param : params.entrySet()) {
-      if (regel.contains(param.getKey())) {
-        if (DoosUtils.isNotBlankOrNull(param.getValue())) {
-          regel = regel.replace(param.getKey(), param.getValue());
-        } else {
-          afgekeurd++;
-        }
-      }
+    var             boom  = new Taxaboom(em, root);
+    if (threads > 1) {
+      verwerkParallel(root, texBestand, boom, em);
+      return;
     }
 
-    if (afgekeurd == 0) {
-      texBestand.write(regel);
+    for (var taxon : root) {
+      verwerkKinderen(taxon, texBestand, DoosUtils::naarScherm, boom);
     }
   }
 
-  private static void verwerkTemplate(TekstBestand texBestand,
+  private static void verwerkTemplate(BufferedWriter texBestand,
                                       EntityManager em) {
     var                 parent  = getParent(em);
     Map<String, String> params  = setParams(parent);
 
-    try (var texInvoer = bepaalTexInvoer()) {
-      while (texInvoer.hasNext()) {
-        var regel = texInvoer.next();
-        if (regel.equals("%@Include taxa")) {
-          verwerkTaxa(texBestand, parent, em);
-        } else {
-          verwerkRegel(regel, params, texBestand);
-        }
-      }
-    } catch (BestandException e) {
+    try {
+      bepaalSjabloon().schrijf(texBestand, params,
+                               Map.of(INC_TAXA, uitvoer ->
+                                   verwerkTaxa(uitvoer, parent, em)));
+    } catch (BestandException | IOException e) {
       DoosUtils.foutNaarScherm(e.getLocalizedMessage());
     }
   }
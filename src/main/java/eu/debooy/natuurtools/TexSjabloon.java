@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.DoosUtils;
+import eu.debooy.doosutils.access.TekstBestand;
+import eu.debooy.doosutils.exception.BestandException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+
+/**
+ * Een TEX template dat 1 keer gelezen wordt. Voor elke set van parameters
+ * worden de regels 1 keer in stukken opgedeeld. Daarbij wordt alleen naar de
+ * parameters gezocht die een waarde (kunnen) krijgen. Een regel met een
+ * parameter zonder waarde wordt niet geschreven. Een regel '%@Include naam'
+ * wordt door een Invoeging vervangen.
+ *
+ * Elke regel eindigt, net als bij TekstBestand.write, met newLine().
+ *
+ * Templates worden bewaard per bestand. Een bestand wordt opnieuw gelezen
+ * als het gewijzigd is.
+ *
+ * @author Marco de Booij
+ */
+public class TexSjabloon {
+  protected static final  String  CLASSPATH = "classpath:";
+  protected static final  String  INCLUDE   = "%@Include ";
+
+  private static final  Map<String, TexSjabloon>  cache =
+      new ConcurrentHashMap<>();
+
+  private final long                            gewijzigd;
+  private final List<String>                    regels  = new ArrayList<>();
+  private final Map<Set<String>, List<Regel>>   versies =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Schrijft de tekst die in de plaats van een '%@Include' regel komt.
+   */
+  @FunctionalInterface
+  public interface Invoeging {
+    void schrijf(BufferedWriter uitvoer) throws IOException;
+  }
+
+  private static class Regel {
+    private final String        include;
+    private final List<String>  stukken     = new ArrayList<>();
+    private final List<Boolean> parameters  = new ArrayList<>();
+
+    /**
+     * Deelt de regel op van links naar rechts. Beginnen 2 parameters op
+     * dezelfde plaats dan wordt de langste genomen.
+     */
+    Regel(String regel, Set<String> sleutels) {
+      include = regel.startsWith(INCLUDE)
+                    ? regel.substring(INCLUDE.length()).trim() : null;
+
+      var vanaf   = 0;
+      while (vanaf < regel.length()) {
+        var     begin   = -1;
+        String  sleutel = null;
+        for (var kandidaat : sleutels) {
+          var positie = regel.indexOf(kandidaat, vanaf);
+          if (positie >= 0
+              && (null == sleutel || positie < begin
+                  || (positie == begin
+                      && kandidaat.length() > sleutel.length()))) {
+            begin   = positie;
+            sleutel = kandidaat;
+          }
+        }
+        if (null == sleutel) {
+          break;
+        }
+        if (begin > vanaf) {
+          voegToe(regel.substring(vanaf, begin), false);
+        }
+        voegToe(sleutel, true);
+        vanaf = begin + sleutel.length();
+      }
+      if (vanaf < regel.length()) {
+        voegToe(regel.substring(vanaf), false);
+      }
+    }
+
+    private boolean isAfgekeurd(Map<String, String> params) {
+      for (var i = 0; i < stukken.size(); i++) {
+        if (Boolean.TRUE.equals(parameters.get(i))
+            && DoosUtils.isBlankOrNull(params.get(stukken.get(i)))) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    private void schrijf(BufferedWriter uitvoer, Map<String, String> params)
+        throws IOException {
+      for (var i = 0; i < stukken.size(); i++) {
+        var stuk  = stukken.get(i);
+        if (Boolean.TRUE.equals(parameters.get(i))) {
+          uitvoer.write(params.get(stuk));
+        } else {
+          uitvoer.write(stuk);
+        }
+      }
+      uitvoer.newLine();
+    }
+
+    private void voegToe(String stuk, boolean parameter) {
+      stukken.add(stuk);
+      parameters.add(parameter);
+    }
+  }
+
+  private TexSjabloon(TekstBestand invoer, long gewijzigd)
+      throws BestandException {
+    this.gewijzigd  = gewijzigd;
+
+    while (invoer.hasNext()) {
+      regels.add(invoer.next());
+    }
+  }
+
+  /**
+   * Deelt alle regels op voor deze parameters. Een lege sleutel wordt niet
+   * gezocht.
+   */
+  private List<Regel> compileer(Set<String> sleutels) {
+    var         zoek    = sleutels.stream()
+                                  .filter(sleutel -> !sleutel.isEmpty())
+                                  .collect(Collectors.toSet());
+    List<Regel> versie  = new ArrayList<>();
+
+    regels.forEach(regel -> versie.add(new Regel(regel, zoek)));
+
+    return versie;
+  }
+
+  /**
+   * Geeft het template uit een bestand.
+   */
+  public static TexSjabloon get(String bestand) throws BestandException {
+    long  gewijzigd;
+    try {
+      gewijzigd = Files.getLastModifiedTime(Paths.get(bestand)).toMillis();
+    } catch (IOException e) {
+      throw new BestandException(e);
+    }
+
+    var sjabloon  = cache.get(bestand);
+    if (null == sjabloon || sjabloon.gewijzigd != gewijzigd) {
+      try (var invoer =
+            new TekstBestand.Builder()
+                            .setBestand(bestand)
+                            .build()) {
+        sjabloon  = new TexSjabloon(invoer, gewijzigd);
+      }
+      cache.put(bestand, sjabloon);
+    }
+
+    return sjabloon;
+  }
+
+  /**
+   * Geeft het template uit het classpath. Dit wordt maar 1 keer gelezen.
+   */
+  public static TexSjabloon get(String bestand, ClassLoader classLoader)
+      throws BestandException {
+    var sjabloon  = cache.get(CLASSPATH + bestand);
+    if (null == sjabloon) {
+      try (var invoer =
+            new TekstBestand.Builder()
+                            .setBestand(bestand)
+                            .setClassLoader(classLoader)
+                            .build()) {
+        sjabloon  = new TexSjabloon(invoer, 0L);
+      }
+      cache.put(CLASSPATH + bestand, sjabloon);
+    }
+
+    return sjabloon;
+  }
+
+  /**
+   * Schrijft het template met de waarden van de parameters.
+   *
+   * @param uitvoer     De uitvoer.
+   * @param params      De waarde van elke parameter (bv. @Naam@). Alleen
+   *                    deze sleutels worden in de regels gezocht.
+   * @param invoegingen De Invoeging voor elke '%@Include naam'. Een regel
+   *                    zonder Invoeging wordt als een gewone regel geschreven.
+   */
+  public void schrijf(BufferedWriter uitvoer, Map<String, String> params,
+                      Map<String, Invoeging> invoegingen) throws IOException {
+    var versie  = versies.computeIfAbsent(Set.copyOf(params.keySet()),
+                                          this::compileer);
+    for (var regel : versie) {
+      if (null != regel.include && invoegingen.containsKey(regel.include)) {
+        invoegingen.get(regel.include).schrijf(uitvoer);
+      } else if (!regel.isAfgekeurd(params)) {
+        regel.schrijf(uitvoer, params);
+      }
+    }
+  }
+}
@@ -87,4 +87,14 @@ public class Totalen {
                          DoosUtils.stringMetLengte(label, lengte, " "),
                          aantal, update, nieuw);
   }
+
+  public void voegToe(int aantal, int update, int nieuw) {
+    this.aantal += aantal;
+    this.nieuw  += nieuw;
+    this.update += update;
+  }
+
+  public void voegToe(Totalen andere) {
+    voegToe(andere.getAantal(), andere.getUpdate(), andere.getNieuw());
+  }
 }
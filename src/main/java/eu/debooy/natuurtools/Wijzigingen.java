@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.access.JsonBestand;
+import eu.debooy.doosutils.exception.BestandException;
+import eu.debooy.natuur.domain.TaxonDto;
+import eu.debooy.natuur.domain.TaxonnaamDto;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+
+/**
+ * De wijzigingen die TaxaImport in de database wil doen. Nieuwe taxa krijgen
+ * een tijdelijke, negatieve, taxonId zodat hun kinderen en namen er naar
+ * kunnen verwijzen.
+ *
+ * @author Marco de Booij
+ */
+public class Wijzigingen {
+  protected static final  String  KEY_GEWIJZIGD       = "gewijzigd";
+  protected static final  String  KEY_GEWIJZIGDENAMEN = "gewijzigdenamen";
+  protected static final  String  KEY_ID              = "id";
+  protected static final  String  KEY_NAAM            = "naam";
+  protected static final  String  KEY_NIEUW           = "nieuw";
+  protected static final  String  KEY_NIEUWENAMEN     = "nieuwenamen";
+  protected static final  String  KEY_PARENT          = "parent";
+  protected static final  String  KEY_TAAL            = "taal";
+
+  private final JSONArray gewijzigd;
+  private final JSONArray gewijzigdeNamen;
+  private final JSONArray nieuw;
+  private final JSONArray nieuweNamen;
+
+  private String  latijnsenaam;
+  // -1 is in TaxaImport een onbekende parent.
+  private long    tijdelijk = -1L;
+
+  public Wijzigingen() {
+    gewijzigd       = new JSONArray();
+    gewijzigdeNamen = new JSONArray();
+    nieuw           = new JSONArray();
+    nieuweNamen     = new JSONArray();
+  }
+
+  private Wijzigingen(JsonBestand jsonBestand) {
+    gewijzigd       = getLijst(jsonBestand, KEY_GEWIJZIGD);
+    gewijzigdeNamen = getLijst(jsonBestand, KEY_GEWIJZIGDENAMEN);
+    nieuw           = getLijst(jsonBestand, KEY_NIEUW);
+    nieuweNamen     = getLijst(jsonBestand, KEY_NIEUWENAMEN);
+    var latijn      = jsonBestand.get(NatuurTools.KEY_LATIJN);
+    if (null != latijn) {
+      latijnsenaam  = latijn.toString();
+    }
+  }
+
+  public synchronized Long addTaxon(TaxonDto taxon) {
+    tijdelijk--;
+    var json  = naarJson(taxon);
+    json.put(KEY_ID, tijdelijk);
+    nieuw.add(json);
+
+    return tijdelijk;
+  }
+
+  public synchronized void addTaxonnaam(TaxonnaamDto taxonnaam) {
+    nieuweNamen.add(naarJson(taxonnaam));
+  }
+
+  public JSONArray getGewijzigd() {
+    return gewijzigd;
+  }
+
+  public JSONArray getGewijzigdeNamen() {
+    return gewijzigdeNamen;
+  }
+
+  public String getLatijnsenaam() {
+    return latijnsenaam;
+  }
+
+  private static JSONArray getLijst(JsonBestand jsonBestand, String sleutel) {
+    var lijst = jsonBestand.get(sleutel);
+
+    return null == lijst ? new JSONArray() : (JSONArray) lijst;
+  }
+
+  protected static Long getLong(JSONObject json, String sleutel) {
+    var waarde  = json.get(sleutel);
+
+    return null == waarde ? null : Long.valueOf(waarde.toString());
+  }
+
+  public JSONArray getNieuw() {
+    return nieuw;
+  }
+
+  public JSONArray getNieuweNamen() {
+    return nieuweNamen;
+  }
+
+  public static Wijzigingen lees(String bestand, String charset)
+      throws BestandException {
+    try (var jsonBestand  =
+          new JsonBestand.Builder()
+                         .setBestand(bestand)
+                         .setCharset(charset)
+                         .build()) {
+      return new Wijzigingen(jsonBestand);
+    }
+  }
+
+  private static JSONObject naarJson(TaxonDto taxon) {
+    var json  = new JSONObject();
+    json.put(KEY_ID, taxon.getTaxonId());
+    json.put(NatuurTools.KEY_LATIJN, taxon.getLatijnsenaam());
+    json.put(KEY_PARENT, taxon.getParentId());
+    json.put(NatuurTools.KEY_RANG, taxon.getRang());
+    json.put(NatuurTools.KEY_SEQ, taxon.getVolgnummer());
+    json.put(NatuurTools.KEY_UITGESTORVEN, taxon.isUitgestorven());
+
+    return json;
+  }
+
+  private static JSONObject naarJson(TaxonnaamDto taxonnaam) {
+    var json  = new JSONObject();
+    json.put(KEY_ID, taxonnaam.getTaxonId());
+    json.put(KEY_NAAM, taxonnaam.getNaam());
+    json.put(KEY_TAAL, taxonnaam.getTaal());
+
+    return json;
+  }
+
+  public void setLatijnsenaam(String latijnsenaam) {
+    this.latijnsenaam = latijnsenaam;
+  }
+
+  public synchronized void setTaxon(TaxonDto taxon) {
+    gewijzigd.add(naarJson(taxon));
+  }
+
+  public synchronized void setTaxonnaam(TaxonnaamDto taxonnaam) {
+    gewijzigdeNamen.add(naarJson(taxonnaam));
+  }
+
+  public JSONObject toJson() {
+    var json  = new JSONObject();
+    json.put(NatuurTools.KEY_LATIJN, latijnsenaam);
+    json.put(KEY_NIEUW, nieuw);
+    json.put(KEY_GEWIJZIGD, gewijzigd);
+    json.put(KEY_NIEUWENAMEN, nieuweNamen);
+    json.put(KEY_GEWIJZIGDENAMEN, gewijzigdeNamen);
+
+    return json;
+  }
+}
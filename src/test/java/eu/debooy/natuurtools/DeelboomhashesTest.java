@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.exception.BestandException;
+import eu.debooy.doosutils.test.BatchTest;
+import java.io.File;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+
+/**
+ * @author Marco de Booij
+ */
+public class DeelboomhashesTest extends BatchTest {
+  private static final  String  BST_HASHES  = "hashes.json";
+  private static final  String  CHARSET     = "UTF-8";
+  private static final  String  SLEUTEL     = "false false false ";
+
+  @AfterClass
+  public static void afterClass() {
+    verwijderBestanden(getTemp() + File.separator,
+                       new String[] {BST_HASHES});
+  }
+
+  private static JSONObject taxon(String latijn, String rang, long seq,
+                                  JSONObject... subrangen) {
+    var json  = new JSONObject();
+    json.put(NatuurTools.KEY_LATIJN, latijn);
+    json.put(NatuurTools.KEY_RANG, rang);
+    json.put(NatuurTools.KEY_SEQ, seq);
+    json.put(NatuurTools.KEY_UITGESTORVEN, false);
+    if (subrangen.length > 0) {
+      var lijst = new JSONArray();
+      for (var subrang : subrangen) {
+        lijst.add(subrang);
+      }
+      json.put(NatuurTools.KEY_SUBRANGEN, lijst);
+    }
+
+    return json;
+  }
+
+  @Test
+  public void testVerhuisd() throws BestandException {
+    var bestand = getTemp() + File.separator + BST_HASHES;
+
+    var genus   = taxon("Genus", "ge", 1L);
+    var familie = taxon("Familiea", "fa", 1L, genus);
+    var andere  = taxon("Familieb", "fa", 2L);
+    var vorige  = new JSONArray();
+    vorige.add(familie);
+    vorige.add(andere);
+
+    var eerste  = new Deelboomhashes(bestand, CHARSET, SLEUTEL);
+    eerste.lees();
+    eerste.bereken("Root", vorige);
+    eerste.bewaar(genus);
+    eerste.bewaar(familie);
+    eerste.bewaar(andere);
+    eerste.schrijf();
+
+    // Het genus verhuist, met hetzelfde seq, naar een andere familie.
+    var verhuisd  = taxon("Genus", "ge", 1L);
+    var nieuw     = new JSONArray();
+    nieuw.add(taxon("Familiea", "fa", 1L));
+    nieuw.add(taxon("Familieb", "fa", 2L, verhuisd));
+
+    var tweede  = new Deelboomhashes(bestand, CHARSET, SLEUTEL);
+    tweede.lees();
+    tweede.bereken("Root", nieuw);
+    assertFalse("Verhuisd genus", tweede.isOngewijzigd(verhuisd));
+    assertFalse("Familie met het genus",
+                tweede.isOngewijzigd((JSONObject) nieuw.get(1)));
+
+    var derde   = new Deelboomhashes(bestand, CHARSET, SLEUTEL);
+    var lijst   = new JSONArray();
+    lijst.add(taxon("Familiea", "fa", 1L, taxon("Genus", "ge", 1L)));
+    derde.lees();
+    derde.bereken("Root", lijst);
+    assertTrue("Ongewijzigde familie",
+               derde.isOngewijzigd((JSONObject) lijst.get(0)));
+    assertTrue("Ongewijzigd genus",
+               derde.isOngewijzigd(
+                   (JSONObject) ((JSONArray) ((JSONObject) lijst.get(0))
+                                   .get(NatuurTools.KEY_SUBRANGEN)).get(0)));
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.exception.BestandException;
+import eu.debooy.doosutils.test.BatchTest;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+
+/**
+ * Vergelijkt de uitvoer van de JsonSchrijver met die van NatuurTools.writeJson
+ * en toJSONString voor hetzelfde object.
+ *
+ * @author Marco de Booij
+ */
+public class JsonSchrijverTest extends BatchTest {
+  private static final  String  BST_GESTROOMD = "gestroomd.json";
+  private static final  String  BST_WRITEJSON = "writejson.json";
+  private static final  String  CHARSET       = "UTF-8";
+
+  @AfterClass
+  public static void afterClass() {
+    verwijderBestanden(getTemp() + File.separator,
+                       new String[] {BST_GESTROOMD, BST_WRITEJSON});
+  }
+
+  private static String getBestand(String bestand) {
+    return getTemp() + File.separator + bestand;
+  }
+
+  /**
+   * Een kopie van het object met een lege lijst onder de subrangen. De
+   * sleutels worden in dezelfde volgorde gezet.
+   */
+  private static JSONObject getKop(JSONObject json) {
+    var kop = new JSONObject();
+    json.forEach((sleutel, waarde) ->
+        kop.put(sleutel, NatuurTools.KEY_SUBRANGEN.equals(sleutel)
+                             ? new JSONArray() : waarde));
+
+    return kop;
+  }
+
+  private static JSONObject getBoom() {
+    var namen = new JSONObject();
+    namen.put("nl", "Zangvogels \"echte\"");
+    namen.put("en", "Songbirds");
+    namen.put("fr", "Passereaux");
+
+    return taxon("Aves", "kl", namen,
+                 taxon("Passeriformes", "or", namen,
+                       taxon("Paridae", "fa", null,
+                             taxon("Parus", "ge", null),
+                             taxon("Cyanistes", "ge", namen)),
+                       legeLijst(taxon("Corvidae", "fa", null))),
+                 taxon("Struthioniformes", "or", null));
+  }
+
+  private static JSONObject legeLijst(JSONObject json) {
+    json.put(NatuurTools.KEY_SUBRANGEN, new JSONArray());
+
+    return json;
+  }
+
+  private static String lees(String bestand) throws IOException {
+    return Files.readString(Paths.get(bestand), StandardCharsets.UTF_8);
+  }
+
+  private static void stroom(JSONObject json, JsonSchrijver schrijver)
+      throws BestandException {
+    for (var element : (JSONArray) json.get(NatuurTools.KEY_SUBRANGEN)) {
+      var taxon = (JSONObject) element;
+      if (taxon.containsKey(NatuurTools.KEY_SUBRANGEN)) {
+        schrijver.openElement(getKop(taxon), NatuurTools.KEY_SUBRANGEN);
+        stroom(taxon, schrijver);
+        schrijver.sluitElement();
+      } else {
+        schrijver.schrijf(taxon);
+      }
+    }
+  }
+
+  private static JSONObject taxon(String latijn, String rang,
+                                  JSONObject namen, JSONObject... subrangen) {
+    var json  = new JSONObject();
+    json.put(NatuurTools.KEY_LATIJN, latijn);
+    json.put(NatuurTools.KEY_RANG, rang);
+    json.put(NatuurTools.KEY_SEQ, 1L);
+    json.put(NatuurTools.KEY_UITGESTORVEN, false);
+    if (null != namen) {
+      json.put(NatuurTools.KEY_NAMEN, namen);
+    }
+    if (subrangen.length > 0) {
+      var lijst = new JSONArray();
+      for (var subrang : subrangen) {
+        lijst.add(subrang);
+      }
+      json.put(NatuurTools.KEY_SUBRANGEN, lijst);
+    }
+
+    return json;
+  }
+
+  @Test
+  public void testCompact() throws BestandException, IOException {
+    var boom  = getBoom();
+
+    try (var schrijver =
+          new JsonSchrijver(getBestand(BST_GESTROOMD), CHARSET, false,
+                            false)) {
+      schrijver.begin(getKop(boom), NatuurTools.KEY_SUBRANGEN);
+      stroom(boom, schrijver);
+      schrijver.sluit();
+    }
+
+    assertEquals("Compact", boom.toJSONString(),
+                 lees(getBestand(BST_GESTROOMD)));
+  }
+
+  @Test
+  public void testFragmenten() throws BestandException, IOException {
+    var boom  = getBoom();
+    NatuurTools.writeJson(getBestand(BST_WRITEJSON), boom, CHARSET);
+
+    try (var schrijver =
+          new JsonSchrijver(getBestand(BST_GESTROOMD), CHARSET, true, false)) {
+      schrijver.begin(getKop(boom), NatuurTools.KEY_SUBRANGEN);
+      for (var element : (JSONArray) boom.get(NatuurTools.KEY_SUBRANGEN)) {
+        var taxon     = (JSONObject) element;
+        var fragment  = new StringWriter();
+        try (var deel = new JsonSchrijver(fragment, true, 2)) {
+          if (taxon.containsKey(NatuurTools.KEY_SUBRANGEN)) {
+            deel.openElement(getKop(taxon), NatuurTools.KEY_SUBRANGEN);
+            stroom(taxon, deel);
+            deel.sluitElement();
+          } else {
+            deel.schrijf(taxon);
+          }
+        }
+        schrijver.schrijfFragment(fragment.toString());
+      }
+      schrijver.sluit();
+    }
+
+    assertEquals("Fragmenten", lees(getBestand(BST_WRITEJSON)),
+                 lees(getBestand(BST_GESTROOMD)));
+  }
+
+  @Test
+  public void testIngesprongen() throws BestandException, IOException {
+    var boom  = getBoom();
+    NatuurTools.writeJson(getBestand(BST_WRITEJSON), boom, CHARSET);
+
+    try (var schrijver =
+          new JsonSchrijver(getBestand(BST_GESTROOMD), CHARSET, true, false)) {
+      schrijver.begin(getKop(boom), NatuurTools.KEY_SUBRANGEN);
+      stroom(boom, schrijver);
+      schrijver.sluit();
+    }
+
+    assertEquals("Ingesprongen", lees(getBestand(BST_WRITEJSON)),
+                 lees(getBestand(BST_GESTROOMD)));
+  }
+
+  @Test
+  public void testLegeLijst() throws BestandException, IOException {
+    var boom  = legeLijst(taxon("Aves", "kl", null));
+    NatuurTools.writeJson(getBestand(BST_WRITEJSON), boom, CHARSET);
+
+    try (var schrijver =
+          new JsonSchrijver(getBestand(BST_GESTROOMD), CHARSET, true, false)) {
+      schrijver.begin(getKop(boom), NatuurTools.KEY_SUBRANGEN);
+      schrijver.sluit();
+    }
+
+    assertEquals("Lege lijst", lees(getBestand(BST_WRITEJSON)),
+                 lees(getBestand(BST_GESTROOMD)));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package eu.debooy.natuurtools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.json.simple.JSONObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+
+/**
+ * Vergelijkt de namen uit de Namentabel met een JSONObject waarin de namen,
+ * kolom per kolom, gezet worden.
+ *
+ * @author Marco de Booij
+ */
+public class NamentabelTest {
+  private static final  String[]  TALEN =
+      new String[] {"eng", "", "cat", "zho", "hrv", "ces", "dan", "nld", "fin",
+                    "fra", "deu", "ita", "jpn", "lit", "nor", "pol", "por",
+                    "rus", "srp", "slk", "", "spa", "swe", "tur", "ukr", "afr",
+                    "est", "hun", "isl", "ind", "lav", "sme", "slv", "tha"};
+
+  @Test
+  public void testNamen() {
+    var                     random    = new Random(20261018L);
+    var                     tabel     = new Namentabel(TALEN);
+    List<String>            soorten   = new ArrayList<>();
+    Map<String, JSONObject> verwacht  = new HashMap<>();
+
+    for (var rij = 0; rij < 2000; rij++) {
+      var latijnsenaam  = "Soort " + rij;
+      var kans          = random.nextDouble();
+      var namen         = new JSONObject();
+      var veld          = new String[TALEN.length];
+      for (var i = 0; i < TALEN.length; i++) {
+        if (random.nextDouble() < kans) {
+          // Dezelfde namen komen 1 keer in de pool.
+          veld[i] = "Naam " + (rij % 100) + " " + i;
+          if (!TALEN[i].isEmpty()) {
+            namen.put(TALEN[i], veld[i]);
+          }
+        }
+      }
+
+      tabel.voegToe(latijnsenaam, veld);
+      verwacht.put(latijnsenaam, namen);
+      soorten.add(latijnsenaam);
+    }
+
+    assertEquals("Aantal", soorten.size(), tabel.getAantal());
+    for (var latijnsenaam : soorten) {
+      var namen   = verwacht.get(latijnsenaam);
+      var gelezen = tabel.getNamen(latijnsenaam);
+      assertEquals(latijnsenaam, namen, gelezen);
+      assertEquals(latijnsenaam + " - JSON", namen.toJSONString(),
+                   gelezen.toJSONString());
+    }
+  }
+
+  @Test
+  public void testOnbekend() {
+    var tabel = new Namentabel(TALEN);
+
+    assertNull("Onbekende soort", tabel.getNamen("Parus major"));
+  }
+}
@@ -62,6 +62,11 @@ public class NatuurToolsTest extends BatchTest {
     testTool(new String[] {"onbestaand"}, "onbestaand - fouten", 1);
   }
 
+  @Test
+  public void testSnapshot() {
+    testTool(new String[] {"Snapshot"}, "Snapshot - fouten", 1);
+  }
+
   @Test
   public void testTaxaImport() {
     testTool(new String[] {"TaxaImport"}, "TaxaImport - fouten", 1);
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package eu.debooy.natuurtools;
+
+import eu.debooy.doos.domain.TaalDto;
+import eu.debooy.doos.domain.TaalnaamDto;
+import eu.debooy.doosutils.exception.BestandException;
+import eu.debooy.doosutils.test.BatchTest;
+import eu.debooy.natuur.domain.TaxonDto;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import org.json.simple.JSONObject;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+
+/**
+ * @author Marco de Booij
+ */
+public class SnapshotbestandTest extends BatchTest {
+  private static final  String  BST_SNAPSHOT  = "snapshot.json";
+  private static final  String  CHARSET       = "UTF-8";
+
+  @AfterClass
+  public static void afterClass() {
+    verwijderBestanden(getTemp() + File.separator,
+                       new String[] {BST_SNAPSHOT});
+  }
+
+  /**
+   * De DTOs van de talen hebben geen setters. De velden worden, zoals door
+   * JPA, rechtstreeks gezet.
+   */
+  private static void zet(Object dto, String veld, Object waarde)
+      throws ReflectiveOperationException {
+    var field = dto.getClass().getDeclaredField(veld);
+    field.setAccessible(true);
+    field.set(dto, waarde);
+  }
+
+  private static Object getVeld(Object object, String veld)
+      throws ReflectiveOperationException {
+    var field = object.getClass().getDeclaredField(veld);
+    field.setAccessible(true);
+
+    return field.get(object);
+  }
+
+  private static TaalDto taal(String iso6391, String iso6392t, Long taalId,
+                              String... namen)
+      throws ReflectiveOperationException {
+    var taalDto = new TaalDto();
+    zet(taalDto, "iso6391", iso6391);
+    zet(taalDto, "iso6392t", iso6392t);
+    zet(taalDto, "taalId", taalId);
+
+    var taalnamen = (Map<String, TaalnaamDto>) getVeld(taalDto, "taalnamen");
+    for (var i = 0; i < namen.length; i += 2) {
+      var taalnaam  = new TaalnaamDto();
+      zet(taalnaam, "iso6392t", namen[i]);
+      zet(taalnaam, "naam", namen[i + 1]);
+      zet(taalnaam, "taalId", taalId);
+      taalnamen.put(namen[i], taalnaam);
+    }
+
+    return taalDto;
+  }
+
+  @Test
+  public void testRondreis()
+      throws BestandException, ReflectiveOperationException {
+    var bestand   = getTemp() + File.separator + BST_SNAPSHOT;
+    var snapshot  = new Snapshotbestand();
+
+    snapshot.addRang("kl");
+    snapshot.addRang("or");
+    snapshot.addTaal(taal("nl", "nld", 1L, "nld", "Nederlands",
+                          "eng", "Dutch"));
+    snapshot.addTaal(taal(null, "sme", 2L, "nld", "Noord-Samisch"));
+
+    var taxon = new TaxonDto();
+    taxon.setLatijnsenaam("Aves");
+    taxon.setRang("kl");
+    taxon.setVolgnummer(7L);
+    taxon.setUitgestorven(false);
+    snapshot.addTaxon(taxon);
+
+    snapshot.schrijf(bestand, CHARSET);
+
+    var gelezen = Snapshotbestand.lees(bestand, CHARSET);
+
+    assertEquals("Rangen", Arrays.asList("kl", "or"), gelezen.getRangen());
+    assertEquals("Talen", 2, gelezen.getAantalTalen());
+    assertEquals("ISO-639-2T", "nld", gelezen.getIso6392t("nl"));
+    assertNull("Zonder ISO-639-1", gelezen.getIso6392t("se"));
+    assertEquals("Taxa", 1, gelezen.getAantalTaxa());
+    assertNull("Onbekend taxon", gelezen.getTaxon("Mammalia"));
+
+    var aves  = gelezen.getTaxon("Aves");
+    assertEquals("Latijn", "Aves", aves.get(NatuurTools.KEY_LATIJN));
+    assertEquals("Rang", "kl", aves.get(NatuurTools.KEY_RANG));
+    assertEquals("Seq", 7L, aves.get(NatuurTools.KEY_SEQ));
+    assertEquals("Uitgestorven", false,
+                 aves.get(NatuurTools.KEY_UITGESTORVEN));
+    assertEquals("Namen", new JSONObject(),
+                 aves.get(NatuurTools.KEY_NAMEN));
+
+    // Het is een kopie.
+    ((JSONObject) aves.get(NatuurTools.KEY_NAMEN)).put("nld", "Vogels");
+    assertEquals("Kopie", new JSONObject(),
+                 gelezen.getTaxon("Aves").get(NatuurTools.KEY_NAMEN));
+  }
+
+  @Test
+  public void testTaalnamen() throws ReflectiveOperationException {
+    var snapshot  = new Snapshotbestand();
+    var namen     = new JSONObject();
+    namen.put("nld", "Nederlands");
+    namen.put("eng", "Dutch");
+
+    snapshot.addTaal(taal("nl", "nld", 1L, "nld", "Nederlands",
+                          "eng", "Dutch"));
+
+    var talen = (JSONObject) getVeld(snapshot, "talen");
+    assertEquals("Namen van de taal", namen,
+                 ((JSONObject) talen.get("nld")).get(NatuurTools.KEY_NAMEN));
+  }
+}
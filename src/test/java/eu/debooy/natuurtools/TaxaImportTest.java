@@ -16,8 +16,13 @@
  */
 package eu.debooy.natuurtools;
 
+import eu.debooy.doosutils.Batchjob;
 import eu.debooy.doosutils.test.BatchTest;
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.ResourceBundle;
 import static org.junit.Assert.assertEquals;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 
@@ -25,12 +30,77 @@ import org.junit.Test;
  * @author Marco de Booij
  */
 public class TaxaImportTest extends BatchTest {
+  @BeforeClass
+  public static void beforeClass() {
+    Locale.setDefault(new Locale("nl"));
+    resourceBundle  = ResourceBundle.getBundle("ApplicatieResources",
+                                               Locale.getDefault());
+  }
+
   protected void execute(String[] args) {
     before();
     TaxaImport.execute(args);
     after();
   }
 
+  @Test
+  public void testCheckpointWijzigingen() {
+    var args  = new String[] {"--" + NatuurTools.PAR_DBURL
+                                + "=localhost:5432/natuur",
+                              "--" + NatuurTools.PAR_DBUSER + "=natuur",
+                              "--checkpointbestand=checkpoint.json",
+                              "--jsonbestand=taxa.json",
+                              "--wijzigingenbestand=wijzigingen.json"};
+
+    execute(args);
+
+    assertEquals("Checkpoint en wijzigingen - fouten", 1, err.size());
+    assertEquals("Checkpoint en wijzigingen - melding",
+                 MessageFormat.format(
+                     resourceBundle.getString(TaxaImport.ERR_COMBINATIE),
+                     NatuurTools.PAR_CHECKPOINT, NatuurTools.PAR_WIJZIGINGEN),
+                 err.get(0));
+  }
+
+  @Test
+  public void testHashesStroom() {
+    var args  = new String[] {"--" + NatuurTools.PAR_DBURL
+                                + "=localhost:5432/natuur",
+                              "--" + NatuurTools.PAR_DBUSER + "=natuur",
+                              "--hashbestand=hashes.json",
+                              "--jsonbestand=taxa.json",
+                              "--" + NatuurTools.PAR_STROOM};
+
+    execute(args);
+
+    assertEquals("Hashes en stroom - fouten", 1, err.size());
+    assertEquals("Hashes en stroom - melding",
+                 MessageFormat.format(
+                     resourceBundle.getString(TaxaImport.ERR_COMBINATIE),
+                     NatuurTools.PAR_HASHES, NatuurTools.PAR_STROOM),
+                 err.get(0));
+  }
+
+  @Test
+  public void testHervatReadonly() {
+    var args  = new String[] {"--" + NatuurTools.PAR_DBURL
+                                + "=localhost:5432/natuur",
+                              "--" + NatuurTools.PAR_DBUSER + "=natuur",
+                              "--checkpointbestand=checkpoint.json",
+                              "--" + NatuurTools.PAR_HERVAT,
+                              "--jsonbestand=taxa.json",
+                              "--" + Batchjob.PAR_READONLY};
+
+    execute(args);
+
+    assertEquals("Hervat en readonly - fouten", 1, err.size());
+    assertEquals("Hervat en readonly - melding",
+                 MessageFormat.format(
+                     resourceBundle.getString(TaxaImport.ERR_COMBINATIE),
+                     NatuurTools.PAR_CHECKPOINT, Batchjob.PAR_READONLY),
+                 err.get(0));
+  }
+
   @Test
   public void testLeeg() {
     var args  = new String[] {};
@@ -39,4 +109,23 @@ public class TaxaImportTest extends BatchTest {
 
     assertEquals("Zonder parameters - fouten", 1, err.size());
   }
+
+  @Test
+  public void testToepassenReadonly() {
+    var args  = new String[] {"--" + NatuurTools.PAR_DBURL
+                                + "=localhost:5432/natuur",
+                              "--" + NatuurTools.PAR_DBUSER + "=natuur",
+                              "--" + Batchjob.PAR_READONLY,
+                              "--" + NatuurTools.PAR_TOEPASSEN,
+                              "--wijzigingenbestand=wijzigingen.json"};
+
+    execute(args);
+
+    assertEquals("Toepassen en readonly - fouten", 1, err.size());
+    assertEquals("Toepassen en readonly - melding",
+                 MessageFormat.format(
+                     resourceBundle.getString(TaxaImport.ERR_COMBINATIE),
+                     NatuurTools.PAR_TOEPASSEN, Batchjob.PAR_READONLY),
+                 err.get(0));
+  }
 }
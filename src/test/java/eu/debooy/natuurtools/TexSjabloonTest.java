@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2026 Marco de Booij
+ *
+ * Licensed under the EUPL, Version 1.2 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * you may not use this work except in compliance with the Licence. You may
+ * obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+
+package eu.debooy.natuurtools;
+
+import eu.debooy.doosutils.DoosUtils;
+import eu.debooy.doosutils.access.BestandConstants;
+import eu.debooy.doosutils.access.TekstBestand;
+import eu.debooy.doosutils.exception.BestandException;
+import eu.debooy.doosutils.test.BatchTest;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+
+/**
+ * Vergelijkt de uitvoer van de TexSjabloon met die van de oude manier van
+ * Taxonomie: elke regel lezen en schrijven met een TekstBestand en de
+ * parameters met String.replace vervangen.
+ *
+ * @author Marco de Booij
+ */
+public class TexSjabloonTest extends BatchTest {
+  private static final  ClassLoader CLASSLOADER   =
+      TexSjabloonTest.class.getClassLoader();
+  private static final  String      BST_NIEUW     = "nieuw.tex";
+  private static final  String      BST_OUD       = "oud.tex";
+  private static final  String      BST_SJABLOON  = "sjabloon.tex";
+  private static final  String      DEF_TEMPLATE  = "taxonomie.tex";
+  private static final  String      INC_TAXA      = "taxa";
+
+  private static final  List<String>  TAXA  =
+      Arrays.asList(
+          "\\begin{samepage}\\taxon{kl}{Aves}{Vogels}{}\\end{samepage}",
+          "\\begin{samepage}\\taxon{or}{Passeriformes}{Zangvogels}"
+              + "{\\naam{eng}{Songbirds}}\\end{samepage}");
+
+  @AfterClass
+  public static void afterClass() {
+    verwijderBestanden(getTemp() + File.separator,
+                       new String[] {BST_NIEUW, BST_OUD, BST_SJABLOON});
+  }
+
+  private static String getBestand(String bestand) {
+    return getTemp() + File.separator + bestand;
+  }
+
+  private static Map<String, String> getParams(boolean metRoot) {
+    Map<String, String> params  = new HashMap<>();
+
+    params.put("@Kleur@", "1E90FF");
+    params.put("@Titel@", "Taxonomie & $namen");
+    if (metRoot) {
+      params.put("@Auteur@", "Marco de Booij");
+      params.put("@Subject@", "Vogels (Aves)");
+      params.put("@Subtitel@", "Vogels (\\textit{Aves})");
+    } else {
+      params.put("@Auteur@", "");
+      params.put("@Subject@", params.get("@Titel@"));
+      params.put("@Subtitel@", "");
+    }
+
+    return params;
+  }
+
+  private static String lees(String bestand) throws IOException {
+    return new String(Files.readAllBytes(Paths.get(getBestand(bestand))),
+                      StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Schrijft het template zoals Taxonomie dat nu doet.
+   */
+  private static void nieuw(TexSjabloon sjabloon, Map<String, String> params)
+      throws IOException {
+    try (var uitvoer =
+            new BufferedWriter(
+                new OutputStreamWriter(
+                    Files.newOutputStream(Paths.get(getBestand(BST_NIEUW))),
+                    StandardCharsets.UTF_8))) {
+      sjabloon.schrijf(uitvoer, params,
+                       Map.of(INC_TAXA, texBestand -> {
+                         for (var taxon : TAXA) {
+                           texBestand.write(taxon);
+                           texBestand.newLine();
+                         }
+                       }));
+    }
+  }
+
+  /**
+   * Schrijft het template zoals Taxonomie dat vroeger deed.
+   */
+  private static void oud(TekstBestand texInvoer, Map<String, String> params)
+      throws BestandException {
+    try (var texBestand =
+            new TekstBestand.Builder()
+                            .setLezen(false)
+                            .setBestand(getBestand(BST_OUD))
+                            .setCharset(BestandConstants.UTF8)
+                            .build()) {
+      while (texInvoer.hasNext()) {
+        var regel = texInvoer.next();
+        if (regel.equals("%@Include taxa")) {
+          for (var taxon : TAXA) {
+            texBestand.write(taxon);
+          }
+        } else {
+          verwerkRegel(regel, params, texBestand);
+        }
+      }
+    }
+  }
+
+  private static void vergelijk(boolean metRoot)
+      throws BestandException, IOException {
+    var params  = getParams(metRoot);
+
+    try (var texInvoer =
+            new TekstBestand.Builder()
+                            .setBestand(DEF_TEMPLATE)
+                            .setClassLoader(CLASSLOADER)
+                            .build()) {
+      oud(texInvoer, params);
+    }
+    nieuw(TexSjabloon.get(DEF_TEMPLATE, CLASSLOADER), params);
+
+    assertEquals(lees(BST_OUD), lees(BST_NIEUW));
+  }
+
+  private static void verwerkRegel(String regel, Map<String, String> params,
+                                   TekstBestand texBestand)
+      throws BestandException {
+    var afgekeurd = 0;
+    for (var param : params.entrySet()) {
+      if (regel.contains(param.getKey())) {
+        if (DoosUtils.isNotBlankOrNull(param.getValue())) {
+          regel = regel.replace(param.getKey(), param.getValue());
+        } else {
+          afgekeurd++;
+        }
+      }
+    }
+
+    if (afgekeurd == 0) {
+      texBestand.write(regel);
+    }
+  }
+
+  @Test
+  public void testEigenSjabloon() throws BestandException, IOException {
+    var bestand = getBestand(BST_SJABLOON);
+    Files.write(Paths.get(bestand),
+                Arrays.asList("\\definecolor{kleur}{HTML}{@Kleur@}",
+                              "@Kleur@@Titel@@Kleur@",
+                              "Geen @Onbekend@ parameter @ @",
+                              "%@Include taxa",
+                              "\\author{@Auteur@} voor @Titel@",
+                              "",
+                              "@Titel@ @Titel@",
+                              "\\subtitle{@Subtitel@}"),
+                StandardCharsets.UTF_8);
+
+    for (var metRoot : new boolean[] {true, false}) {
+      var params  = getParams(metRoot);
+      try (var texInvoer =
+              new TekstBestand.Builder()
+                              .setBestand(bestand)
+                              .build()) {
+        oud(texInvoer, params);
+      }
+      nieuw(TexSjabloon.get(bestand), params);
+
+      assertEquals(lees(BST_OUD), lees(BST_NIEUW));
+    }
+  }
+
+  @Test
+  public void testMetRoot() throws BestandException, IOException {
+    vergelijk(true);
+  }
+
+  @Test
+  public void testZonderRoot() throws BestandException, IOException {
+    vergelijk(false);
+  }
+}
@@ -164,4 +164,35 @@ public class TotalenTest {
 
     assertEquals(TOSTRINGB, totalen.toString());
   }
+
+  @Test
+  public void testVoegToe() {
+    var andere  = new Totalen(TOTALENB);
+    var totalen = new Totalen(TOTALENA);
+
+    andere.addAantal();
+    andere.addAantal();
+    andere.addNieuw();
+    totalen.addAantal();
+    totalen.addUpdate();
+    totalen.voegToe(andere);
+
+    assertEquals(Integer.valueOf(3), totalen.getAantal());
+    assertEquals(EEN, totalen.getNieuw());
+    assertEquals(EEN, totalen.getUpdate());
+    assertEquals(TOTALENA, totalen.getLabel());
+    assertEquals(TWEE, andere.getAantal());
+  }
+
+  @Test
+  public void testVoegToeTellers() {
+    var totalen = new Totalen(TOTALENA);
+
+    totalen.addNieuw();
+    totalen.voegToe(2, 1, 0);
+
+    assertEquals(TWEE, totalen.getAantal());
+    assertEquals(EEN, totalen.getNieuw());
+    assertEquals(EEN, totalen.getUpdate());
+  }
 }